@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The spring behind every settle, stepped once per frame at common display refresh rates. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettleSpringBenchmark {
+  private static final float DENSITY = 2.625f;
+  /** A 280dp drawer. */
+  private static final float DRAWER_WIDTH = 280 * DENSITY;
+
+  @Param({ "60", "90", "120" })
+  public int refreshRate;
+
+  private SettleSpring spring;
+  private float frameSeconds;
+
+  @Setup public void setUp() {
+    spring = new SettleSpring(DENSITY);
+    frameSeconds = 1f / refreshRate;
+  }
+
+  /** One settle frame, restarting from closed whenever the spring comes to rest. */
+  @Benchmark public float step() {
+    if (!spring.step(frameSeconds)) {
+      spring.start(-DRAWER_WIDTH, 0, 0);
+    }
+    return spring.position();
+  }
+
+  /** A whole settle from closed to open, one frame at a time. */
+  @Benchmark public int settle() {
+    spring.start(-DRAWER_WIDTH, 0, 0);
+    int frames = 1;
+    while (spring.step(frameSeconds)) {
+      frames++;
+    }
+    return frames;
+  }
+}
@@ -16,29 +16,41 @@
  */
 package com.jakewharton.behavior.drawer;
 
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Rect;
 import android.os.Build;
-import android.os.SystemClock;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.v4.view.GravityCompat;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
-import android.util.Log;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewParent;
+import android.view.ViewStub;
+import android.view.ViewTreeObserver;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.animation.AnimationUtils;
+
+import java.util.ArrayList;
 
 import static android.view.View.INVISIBLE;
 import static android.view.View.VISIBLE;
-import static com.jakewharton.behavior.drawer.DrawerBehavior.DrawerListener;
+import static com.jakewharton.behavior.drawer.DrawerBehavior.DrawerTracer;
+import static com.jakewharton.behavior.drawer.DrawerBehavior.LayerPolicy;
 import static com.jakewharton.behavior.drawer.DrawerBehavior.State;
 
 final class BehaviorDelegate extends ViewDragHelper.Callback {
-  private static final boolean DEBUG = true;
   private static final int PEEK_DELAY = 160; // ms
-  private static final int MIN_FLING_VELOCITY = 400; // dips per second
+  private static final int MAX_SETTLE_FRAME = 100; // ms
+  /** Prediction never puts the drawer further than this from the finger. */
+  private static final int MAX_PREDICTED_LEAD = 24; // dp
   static final int FLAG_IS_OPENED = 0x1;
   @SuppressWarnings("WeakerAccess")
   static final int FLAG_IS_OPENING = 0x2;
@@ -46,71 +58,332 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
   static final int FLAG_IS_CLOSING = 0x4;
   static final int FLAG_IS_CLOSED = 0x0;
   private static final int DEFAULT_SCRIM_COLOR = 0x99000000;
+  private static final int ANNOUNCED_NONE = -1;
+  private static final int ANNOUNCED_CLOSED = 0;
+  private static final int ANNOUNCED_OPENED = 1;
 
   private final CoordinatorLayout parent;
-  private final View child;
-  private final boolean isLeft;
+  /** Starts out as a {@link ViewStub} for a lazily inflated drawer and becomes its layout. */
+  private View child;
+  final boolean isLeft;
   private final ContentScrimDrawer scrimDrawer;
+  private final DragCoordinator coordinator;
   private final ViewDragHelper dragger;
+  private final Rect dirty = new Rect();
+  private final ArrayList<View> promotedViews = new ArrayList<>();
+  private final SettleSpring spring;
+  @Nullable private EdgeShadow shadow;
+  private float contentParallax;
+  private float contentScale = 1f;
+  private boolean contentTransformed;
+  /**
+   * Content views whose clip bounds are set to the strip the drawer leaves visible. Each one also
+   * carries the clip it was given in its {@code drawer_behavior_content_clip} tag.
+   */
+  private final ArrayList<View> clippedViews = new ArrayList<>();
+  /** Clip rects of views which are no longer clipped, for reuse. */
+  private final ArrayList<Rect> spareClips = new ArrayList<>();
+  /** Receives a view's current clip bounds to compare with the one set here. */
+  private final Rect currentClip = new Rect();
+  private boolean contentClipPending;
+  private final ViewTreeObserver.OnPreDrawListener contentClipAfterLayout =
+      new ViewTreeObserver.OnPreDrawListener() {
+        @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+        @Override public boolean onPreDraw() {
+          cancelContentClip();
+          updateContentClip(drawerLeft(), onScreen);
+          return true;
+        }
+      };
 
-  private DrawerListener listener;
+  private final DrawerListeners listeners;
+  private final DrawerStatePublisher publisher;
+  private boolean snapshotPending;
+  @Nullable private DrawerTracer tracer;
+  private LayerPolicy layerPolicy;
 
   private float initialMotionX;
   private float initialMotionY;
   private boolean childrenCanceledTouch;
   private int openState;
   private boolean isPeeking;
+  private boolean peekPending;
+  /** True while a nested scroll, rather than the drag helper, is moving the drawer. */
+  private boolean nestedDragging;
+  private boolean warmUpScheduled;
+  /** True while the layer rendered by the idle warm-up is kept for the drawer's first use. */
+  private boolean warmLayerKept;
   private float onScreen;
+  /** True when {@link #onScreen} changed without the scrim, shadow, and content following it. */
+  private boolean positionStale;
+  private boolean useTranslation;
+  private long settleFrameTime;
+  /** Tracks the finger for touch prediction and for settles which take the drawer from it. */
+  private final TouchPredictor predictor = new TouchPredictor();
+  /** True once a settle took the drawer from the finger, until the next gesture starts. */
+  private boolean gestureTakenOver;
+  @Nullable private DrawerGestureRecorder recorder;
+  @Nullable private GestureMeter meter;
+  /** Uptime of the down event which started the current gesture. */
+  private long downTime = -1;
+  /** Negative for the drag helper's edge size. */
+  private int edgeRegionWidth = -1;
+  private int predictionMillis;
+  /** How far ahead of the finger the drawer was last drawn, in pixels. */
+  private int predictedLead;
+  private final float maxPredictedLead;
 
   @State
   private int drawerState;
 
+  private boolean accessibilityUpdatePending;
+  private boolean accessibilityOpen;
+  /** The last open state a window state change was sent for, or {@link #ANNOUNCED_NONE}. */
+  private int announcedState = ANNOUNCED_NONE;
+
   @SuppressWarnings("FieldCanBeLocal")
   private int scrimColor = DEFAULT_SCRIM_COLOR;
 
   private final Runnable peekRunnable = new Runnable() {
     @Override public void run() {
+      peekPending = false;
       peekDrawer();
     }
   };
-  private final Runnable draggerSettle = new Runnable() {
+  /**
+   * Renders the drawer into a layer the first time the main thread goes idle after it is laid out.
+   * The layer is kept until the drawer is first used or the app is asked to trim memory.
+   */
+  private final MessageQueue.IdleHandler idleWarmUp = new MessageQueue.IdleHandler() {
+    @Override public boolean queueIdle() {
+      if (drawerState == ViewDragHelper.STATE_IDLE && onScreen == 0 && warmUp()) {
+        warmLayerKept = true;
+        parent.getContext().registerComponentCallbacks(trimWarmLayer);
+      }
+      return false;
+    }
+  };
+  private final ComponentCallbacks2 trimWarmLayer = new ComponentCallbacks2() {
+    @Override public void onTrimMemory(int level) {
+      if (drawerState == ViewDragHelper.STATE_IDLE && !peekPending) {
+        demoteLayers();
+      }
+    }
+
+    @Override public void onLowMemory() {
+      onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override public void onConfigurationChanged(Configuration newConfig) {
+    }
+  };
+  private final Runnable accessibilityUpdate = new Runnable() {
+    @Override public void run() {
+      accessibilityUpdatePending = false;
+      updateAccessibility(accessibilityOpen);
+    }
+  };
+  private final Runnable publishSnapshot = new Runnable() {
+    @Override public void run() {
+      snapshotPending = false;
+      if (publisher.hasObservers()) {
+        publisher.publish(new DrawerSnapshot(onScreen, drawerState, isDrawerOpen(),
+            AnimationUtils.currentAnimationTimeMillis()));
+      }
+    }
+  };
+  private final Runnable settleFrame = new Runnable() {
     @Override public void run() {
-      if (dragger.continueSettling(true)) {
+      if (!spring.isRunning()) {
+        return;
+      }
+      DrawerTracer tracer = BehaviorDelegate.this.tracer;
+      if (tracer != null) tracer.beginPhase(child, DrawerTracer.PHASE_SETTLE);
+      long now = AnimationUtils.currentAnimationTimeMillis();
+      long elapsed = Math.min(now - settleFrameTime, MAX_SETTLE_FRAME);
+      settleFrameTime = now;
+
+      boolean running = spring.step(elapsed / 1000f);
+      int left = Math.round(spring.position());
+      int clamped = clampDrawerLeft(left);
+      if (clamped != left) {
+        // Overshot the end of the drawer's range. Come to rest there.
+        spring.stop();
+        running = false;
+      }
+      moveDrawerTo(clamped);
+
+      if (running) {
         ViewCompat.postOnAnimation(parent, this);
+      } else {
+        updateDrawerState(ViewDragHelper.STATE_IDLE, child);
       }
+      if (tracer != null) tracer.endPhase(child, DrawerTracer.PHASE_SETTLE);
     }
   };
 
-  BehaviorDelegate(CoordinatorLayout parent, View child, int gravity) {
+  BehaviorDelegate(CoordinatorLayout parent, View child, int gravity, boolean propertyScrim,
+      DrawerListeners listeners, DrawerStatePublisher publisher) {
     this.parent = parent;
     this.child = child;
+    this.listeners = listeners;
+    this.publisher = publisher;
 
     int absGravity =
         GravityCompat.getAbsoluteGravity(gravity, ViewCompat.getLayoutDirection(parent));
     this.isLeft = absGravity == Gravity.LEFT;
 
+    coordinator = DragCoordinator.get(parent);
+    coordinator.register(this);
+    dragger = coordinator.dragger;
     float density = parent.getResources().getDisplayMetrics().density;
-    float minVel = MIN_FLING_VELOCITY * density;
-
-    dragger = ViewDragHelper.create(parent, this);
-    dragger.setEdgeTrackingEnabled(isLeft ? ViewDragHelper.EDGE_LEFT : ViewDragHelper.EDGE_RIGHT);
-    dragger.setMinVelocity(minVel);
+    spring = new SettleSpring(density);
+    maxPredictedLead = MAX_PREDICTED_LEAD * density;
 
-    scrimDrawer = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
-        ? new ContentScrimDrawer.JellyBeanMr2(parent)
-        : new ContentScrimDrawer.Base(parent, child);
-  }
-
-  private boolean isContentView(View child) {
-    return child != this.child;
+    if (propertyScrim) {
+      scrimDrawer = new ContentScrimDrawer.Property(parent, child, scrimColor);
+    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      scrimDrawer = new ContentScrimDrawer.JellyBeanMr2(parent);
+    } else {
+      scrimDrawer = new ContentScrimDrawer.Base(parent, child);
+    }
   }
 
-  private boolean isDrawerView(View child) {
+  boolean isDrawerView(View child) {
     return child == this.child;
   }
 
   private void removeCallbacks() {
     parent.removeCallbacks(peekRunnable);
+    peekPending = false;
+  }
+
+  /** The left edge of the open drawer, and where it is laid out when positioned by translation. */
+  private int openLeft() {
+    return isLeft ? 0 : parent.getWidth() - child.getWidth();
+  }
+
+  private int closedLeft() {
+    return isLeft ? -child.getWidth() : parent.getWidth();
+  }
+
+  private int clampDrawerLeft(int left) {
+    if (isLeft) {
+      return Math.max(-child.getWidth(), Math.min(left, 0));
+    } else {
+      int width = parent.getWidth();
+      return Math.max(width - child.getWidth(), Math.min(left, width));
+    }
+  }
+
+  /** The left edge of the drawer as drawn, including any positioning translation. */
+  private int drawerLeft() {
+    return useTranslation ? child.getLeft() + (int) child.getTranslationX() : child.getLeft();
+  }
+
+  /** True if the drawer, as drawn, covers the horizontal position {@code x}. */
+  boolean isDrawnUnder(float x) {
+    int left = drawerLeft();
+    return x >= left && x < left + child.getWidth();
+  }
+
+  /**
+   * True if {@code x, y} lands on content rather than on the drawer. The helper only knows layout
+   * bounds, which a drawer positioned by translation fills even where it is not drawn.
+   */
+  private boolean isContentUnder(float x, float y) {
+    return !isDrawnUnder(x) && dragger.findTopChildUnder((int) x, (int) y) != null;
+  }
+
+  /** Move the drawer, as drawn, to {@code drawerLeft} without involving the drag helper. */
+  private void moveDrawerTo(int drawerLeft) {
+    int dx = drawerLeft - drawerLeft();
+    if (dx == 0) {
+      return;
+    }
+    if (useTranslation) {
+      child.setTranslationX(child.getTranslationX() + dx);
+    } else {
+      ViewCompat.offsetLeftAndRight(child, dx);
+    }
+    onDrawerMoved(drawerLeft, dx);
+  }
+
+  /**
+   * Spring the drawer towards {@code drawerLeft}. A settle which is already running is retargeted
+   * and keeps its velocity unless a new one is supplied.
+   *
+   * @param velocity Initial velocity in pixels per second, or 0 to keep the current motion
+   */
+  private void settleTo(int drawerLeft, float velocity) {
+    boolean wasRunning = spring.isRunning();
+    if (wasRunning && velocity == 0) {
+      velocity = spring.velocity();
+    }
+    float position = wasRunning ? spring.position() : drawerLeft();
+    if (position == drawerLeft && velocity == 0) {
+      if (wasRunning) {
+        stopSettle();
+        updateDrawerState(ViewDragHelper.STATE_IDLE, child);
+      }
+      return;
+    }
+
+    spring.start(position, velocity, drawerLeft);
+    if (meter != null) {
+      meter.settling(child);
+    }
+    if (!wasRunning) {
+      settleFrameTime = AnimationUtils.currentAnimationTimeMillis();
+      ViewCompat.postOnAnimation(parent, settleFrame);
+      updateDrawerState(ViewDragHelper.STATE_SETTLING, child);
+    }
+  }
+
+  private void stopSettle() {
+    spring.stop();
+    parent.removeCallbacks(settleFrame);
+  }
+
+  /** Open or close the drawer in response to an API call rather than a gesture. */
+  void setDrawerOpen(boolean open, boolean animate) {
+    removeCallbacks();
+    isPeeking = false;
+    if (open) {
+      inflateDrawer();
+    }
+
+    if (child.getWidth() == 0) {
+      // Not laid out yet. The first layout will put the drawer in place.
+      stopSettle();
+      onScreen = open ? 1 : 0;
+      if (open) {
+        dispatchOnDrawerOpened(child);
+      } else {
+        dispatchOnDrawerClosed(child);
+      }
+      positionStale = true;
+      child.requestLayout();
+      return;
+    }
+
+    int target = open ? openLeft() : closedLeft();
+    boolean dragged = dragger.getCapturedView() == child;
+    if (animate) {
+      // A drawer taken from the finger keeps the finger's motion. The tracker is in pixels per
+      // millisecond.
+      settleTo(target, dragged ? predictor.velocity() * 1000 : 0);
+    } else {
+      stopSettle();
+      moveDrawerTo(target);
+      updateDrawerState(ViewDragHelper.STATE_IDLE, child);
+    }
+    if (dragged) {
+      // Take the drawer away from the finger for the rest of the gesture. The helper going idle is
+      // absorbed by the settle.
+      gestureTakenOver = true;
+      dragger.abort();
+    }
   }
 
   private void peekDrawer() {
@@ -122,10 +395,10 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
       childLeft = parent.getWidth() - peekDistance;
     }
     // Only peek if it would mean making the drawer more visible and the drawer isn't locked
-    if ((isLeft && child.getLeft() < childLeft) //
-        || (!isLeft && child.getLeft() > childLeft)) {
-      dragger.smoothSlideViewTo(child, childLeft, child.getTop());
-      ViewCompat.postOnAnimation(parent, draggerSettle);
+    int drawerLeft = drawerLeft();
+    if ((isLeft && drawerLeft < childLeft) //
+        || (!isLeft && drawerLeft > childLeft)) {
+      settleTo(childLeft, 0);
       isPeeking = true;
 
       cancelChildViewTouch();
@@ -135,14 +408,7 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
   private void cancelChildViewTouch() {
     // Cancel child touches
     if (!childrenCanceledTouch) {
-      final long now = SystemClock.uptimeMillis();
-      final MotionEvent cancelEvent = MotionEvent.obtain(now, now,
-          MotionEvent.ACTION_CANCEL, 0.0f, 0.0f, 0);
-      final int childCount = parent.getChildCount();
-      for (int i = 0; i < childCount; i++) {
-        parent.getChildAt(i).dispatchTouchEvent(cancelEvent);
-      }
-      cancelEvent.recycle();
+      coordinator.cancelTouchTargets();
       childrenCanceledTouch = true;
     }
   }
@@ -151,16 +417,370 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
       return openState == FLAG_IS_OPENED || openState == FLAG_IS_OPENING;
   }
 
-  void setDrawerState(int openState) {
-      this.openState = openState;
+  /**
+   * Put the drawer on hold while it is detached. A gesture or settle in progress lands where it
+   * was heading, and pending work and promoted layers are dropped. The drawer keeps its position,
+   * scrim, and shadow in case it is attached to the same parent again.
+   */
+  void onDetached() {
+    if (drawerState != ViewDragHelper.STATE_IDLE) {
+      boolean open = isHeadingOpen();
+      stopSettle();
+      if (dragger.getCapturedView() == child) {
+        dragger.abort();
+      }
+      nestedDragging = false;
+      moveDrawerTo(open ? openLeft() : closedLeft());
+      updateDrawerState(ViewDragHelper.STATE_IDLE, child);
+    }
+    removeCallbacks();
+    isPeeking = false;
+    parent.removeCallbacks(publishSnapshot);
+    snapshotPending = false;
+    Looper.myQueue().removeIdleHandler(idleWarmUp);
+    warmUpScheduled = false;
+    demoteLayers();
+    cancelContentClip();
+    if (meter != null) {
+      meter.cancel();
+    }
+  }
+
+  /** Resume after {@link #onDetached()} once the drawer is attached to its parent again. */
+  void onReattached() {
+    positionStale = true;
+    child.requestLayout();
+  }
+
+  /** True if the drawer was last laid out in {@code parent}. */
+  boolean hasParent(ViewParent parent) {
+    return this.parent == parent;
+  }
+
+  /**
+   * Let go of a parent the drawer was removed from, after {@link #onDetached()}: take the scrim
+   * and shadow out of it, return its content to how it was found, and leave its drag coordinator.
+   * The delegate is not used again.
+   */
+  void release() {
+    parent.removeCallbacks(accessibilityUpdate);
+    accessibilityUpdatePending = false;
+    if (isDrawerOpen()) {
+      updateChildrenImportantForAccessibility(child, false);
+    }
+    scrimDrawer.remove();
+    if (shadow != null) {
+      parent.removeView(shadow);
+      shadow = null;
+    }
+    updateContentEffect(0);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      clearContentClip();
+    }
+    demoteLayers();
+    coordinator.unregister(this);
+  }
+
+  /** The current drawer view, which changes once if it started out as a {@link ViewStub}. */
+  View drawerView() {
+    return child;
+  }
+
+  /**
+   * Replace a {@link ViewStub} drawer with its layout. The stub's layout params, and with them
+   * this behavior, carry over to the inflated view. It is laid out closed in the next layout pass.
+   */
+  private void inflateDrawer() {
+    if (child instanceof ViewStub) {
+      child = ((ViewStub) child).inflate();
+    }
+  }
+
+  float slideOffset() {
+    return onScreen;
+  }
+
+  @State int dragState() {
+    return drawerState;
+  }
+
+  /**
+   * True if the drawer is open or will be once the current gesture or settle finishes. A drag is
+   * assumed to end on whichever side of halfway the drawer currently is.
+   */
+  boolean isHeadingOpen() {
+    if (spring.isRunning()) {
+      return (int) spring.target() == openLeft();
+    }
+    if (drawerState == ViewDragHelper.STATE_DRAGGING) {
+      return onScreen > 0.5f;
+    }
+    return isDrawerOpen();
+  }
+
+  /**
+   * Put the drawer back where it was when its state was saved, before the first layout after
+   * recreation. A gesture or settle cannot resume, so one in progress lands where it was heading.
+   * Neither can a peek, which rests at a partial offset. The layout then positions the drawer and
+   * its scrim in one pass without animating.
+   */
+  void restoreState(float offset, @State int dragState, boolean open) {
+    removeCallbacks();
+    isPeeking = false;
+    stopSettle();
+    if (dragState != ViewDragHelper.STATE_IDLE || offset > 0 && offset < 1) {
+      offset = open ? 1 : 0;
+    }
+    onScreen = Math.max(0f, Math.min(offset, 1f));
+    if (onScreen > 0) {
+      inflateDrawer();
+    }
+    if (onScreen == 1) {
+      dispatchOnDrawerOpened(child);
+    } else {
+      dispatchOnDrawerClosed(child);
+    }
+    positionStale = true;
+    child.requestLayout();
+  }
+
+  void setUseTranslation(boolean useTranslation) {
+    if (this.useTranslation == useTranslation) {
+      return;
+    }
+    if (dragger.getCapturedView() == child) {
+      dragger.abort();
+    }
+    this.useTranslation = useTranslation;
+    // Hand the position back to layout, which will split it up again if needed.
+    child.setTranslationX(0);
+    child.requestLayout();
+  }
+
+  void setShadowEnabled(boolean enabled) {
+    if (enabled == (shadow != null)) {
+      return;
+    }
+    if (enabled) {
+      shadow = new EdgeShadow(parent, child, isLeft);
+      updateShadow(drawerLeft());
+    } else {
+      parent.removeView(shadow);
+      shadow = null;
+    }
+  }
+
+  private void updateShadow(int left) {
+    if (isLeft) {
+      int edge = left + child.getWidth();
+      shadow.update(edge, edge);
+    } else {
+      shadow.update(left, parent.getWidth() - left);
+    }
+  }
+
+  void setContentEffect(float parallax, float scale) {
+    contentParallax = parallax;
+    contentScale = scale;
+    updateContentEffect(onScreen);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      updateContentClip(drawerLeft(), onScreen);
+    }
+  }
+
+  /**
+   * Move the content along with the drawer through its translation and scale only, so that the
+   * content subtree is never laid out or redrawn for it.
+   */
+  private void updateContentEffect(float offset) {
+    boolean enabled = contentParallax != 0 || contentScale != 1f;
+    if (!enabled && !contentTransformed) {
+      return;
+    }
+    float translation = (isLeft ? 1 : -1) * contentParallax * offset * child.getWidth();
+    float scale = 1f - (1f - contentScale) * offset;
+    final int childCount = parent.getChildCount();
+    for (int i = 0; i < childCount; i++) {
+      final View view = parent.getChildAt(i);
+      if (!isEffectTarget(view)) {
+        continue;
+      }
+      view.setTranslationX(translation);
+      if (scale != view.getScaleX()) {
+        view.setPivotX(isLeft ? 0 : view.getWidth());
+        view.setPivotY(view.getHeight() / 2f);
+        view.setScaleX(scale);
+        view.setScaleY(scale);
+      }
+    }
+    contentTransformed = enabled;
+  }
+
+  /**
+   * Clip each content view to the strip an opaque drawer leaves uncovered, so the content under
+   * the drawer is not drawn only to be painted over. Content entirely under the drawer gets an
+   * empty clip. Clip bounds are a render node property from Lollipop on, so changing them every
+   * frame does not re-record the content. The scrim already only covers the uncovered strip.
+   */
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private void updateContentClip(int drawerLeft, float offset) {
+    // Scaled content no longer lines up with its layout bounds.
+    boolean clip = offset > 0 && contentScale == 1f && child.isOpaque();
+    if (!clip) {
+      clearContentClip();
+      return;
+    }
+    int drawerRight = drawerLeft + child.getWidth();
+    final int childCount = parent.getChildCount();
+    for (int i = 0; i < childCount; i++) {
+      final View view = parent.getChildAt(i);
+      if (!isEffectTarget(view)) {
+        continue;
+      }
+      Rect clip = (Rect) view.getTag(R.id.drawer_behavior_content_clip);
+      if (view.getClipBounds(currentClip) && (clip == null || !currentClip.equals(clip))) {
+        // Clipped by the app, possibly over the clip set here. Leave it alone.
+        if (clip != null) {
+          forgetContentClip(view, clip);
+        }
+        continue;
+      }
+      if (view.getTop() < child.getTop() || view.getBottom() > child.getBottom()) {
+        // Part of the content above or below the drawer is uncovered at any horizontal position.
+        if (clip != null) {
+          view.setClipBounds(null);
+          forgetContentClip(view, clip);
+        }
+        continue;
+      }
+      if (clip == null) {
+        int spares = spareClips.size();
+        clip = spares > 0 ? spareClips.remove(spares - 1) : new Rect();
+        view.setTag(R.id.drawer_behavior_content_clip, clip);
+        clippedViews.add(view);
+      }
+      int viewLeft = view.getLeft() + (int) view.getTranslationX();
+      int width = view.getWidth();
+      if (isLeft) {
+        clip.set(Math.max(0, Math.min(drawerRight - viewLeft, width)), 0, width,
+            view.getHeight());
+      } else {
+        clip.set(0, 0, Math.max(0, Math.min(drawerLeft - viewLeft, width)), view.getHeight());
+      }
+      view.setClipBounds(clip);
+    }
+  }
+
+  private void forgetContentClip(View view, Rect clip) {
+    view.setTag(R.id.drawer_behavior_content_clip, null);
+    clippedViews.remove(view);
+    spareClips.add(clip);
+  }
+
+  /**
+   * Recompute the content clips once the whole layout pass is done. Content may be resized after
+   * the drawer is laid out, and a clip sized for its old bounds would cut off what it grew into.
+   */
+  private void scheduleContentClip() {
+    if (!contentClipPending) {
+      contentClipPending = true;
+      parent.getViewTreeObserver().addOnPreDrawListener(contentClipAfterLayout);
+    }
+  }
+
+  private void cancelContentClip() {
+    if (contentClipPending) {
+      contentClipPending = false;
+      parent.getViewTreeObserver().removeOnPreDrawListener(contentClipAfterLayout);
+    }
+  }
+
+  /** Remove the clips set here, except from views whose clip the app has since replaced. */
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private void clearContentClip() {
+    for (int i = 0, size = clippedViews.size(); i < size; i++) {
+      View view = clippedViews.get(i);
+      Rect clip = (Rect) view.getTag(R.id.drawer_behavior_content_clip);
+      if (view.getClipBounds(currentClip) && currentClip.equals(clip)) {
+        view.setClipBounds(null);
+      }
+      view.setTag(R.id.drawer_behavior_content_clip, null);
+      spareClips.add(clip);
+    }
+    clippedViews.clear();
+  }
+
+  /** True for content views. Drawers, scrims, and shadows are left alone. */
+  private static boolean isEffectTarget(View view) {
+    if (view instanceof ContentScrimDrawer || view instanceof EdgeShadow) {
+      return false;
+    }
+    CoordinatorLayout.LayoutParams lp = (CoordinatorLayout.LayoutParams) view.getLayoutParams();
+    return !(lp.getBehavior() instanceof DrawerBehavior);
   }
 
-  void setDrawListener(DrawerListener listener) {
-      this.listener = listener;
+  void setEdgeRegionWidth(int width) {
+    edgeRegionWidth = width;
+    coordinator.updateExclusionRects();
+  }
+
+  /** The width of the strip along the edge from which this drawer can be pulled. */
+  int edgeRegionWidth() {
+    int edgeSize = dragger.getEdgeSize();
+    return edgeRegionWidth < 0 ? edgeSize : Math.min(edgeRegionWidth, edgeSize);
+  }
+
+  /**
+   * True when nothing about this drawer can react to a touch outside its edge region: it is
+   * closed, at rest, and not about to peek.
+   */
+  boolean isClosedAndIdle() {
+    return onScreen == 0
+        && drawerState == ViewDragHelper.STATE_IDLE
+        && !peekPending
+        && !isPeeking
+        && !nestedDragging;
+  }
+
+  void setPerformanceMonitor(@Nullable DrawerPerformanceMonitor monitor) {
+    if (meter != null) {
+      meter.cancel();
+    }
+    meter = monitor != null ? new GestureMeter(monitor) : null;
+  }
+
+  void setGestureRecorder(@Nullable DrawerGestureRecorder recorder) {
+    this.recorder = recorder;
+  }
+
+  void setTouchPredictionMillis(int millis) {
+    predictionMillis = millis;
+    predictedLead = 0;
+  }
+
+  void setTracer(@Nullable DrawerTracer tracer) {
+    this.tracer = tracer;
+  }
+
+  void setLayerPolicy(LayerPolicy layerPolicy) {
+    this.layerPolicy = layerPolicy;
   }
 
   boolean onInterceptTouchEvent(MotionEvent ev) {
-    boolean interceptForDrag = dragger.shouldInterceptTouchEvent(ev);
+    if (recorder != null) {
+      recorder.record(ev);
+    }
+    if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+      downTime = ev.getDownTime();
+      gestureTakenOver = false;
+    }
+    if (coordinator.rejectsGesture(ev)) {
+      return false;
+    }
+    DrawerTracer tracer = this.tracer;
+    if (tracer != null) tracer.beginPhase(child, DrawerTracer.PHASE_INTERCEPT);
+    predictor.addMovement(ev);
+    boolean interceptForDrag = coordinator.shouldInterceptTouchEvent(this, ev);
     boolean interceptForTap = false;
     switch (ev.getActionMasked()) {
       case MotionEvent.ACTION_DOWN: {
@@ -168,11 +788,8 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
         float y = ev.getY();
         initialMotionX = x;
         initialMotionY = y;
-        if (onScreen > 0) {
-          View child = dragger.findTopChildUnder((int) x, (int) y);
-          if (child != null && isContentView(child)) {
-            interceptForTap = true;
-          }
+        if (onScreen > 0 && isContentUnder(x, y)) {
+          interceptForTap = true;
         }
         childrenCanceledTouch = false;
         break;
@@ -189,16 +806,40 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
       case MotionEvent.ACTION_CANCEL:
       case MotionEvent.ACTION_UP: {
         closeDrawers(true);
+        coolDown();
         childrenCanceledTouch = false;
         break;
       }
     }
 
-    return interceptForDrag || interceptForTap || isPeeking || childrenCanceledTouch;
+    boolean intercept = interceptForDrag || interceptForTap || isPeeking || childrenCanceledTouch;
+    if (intercept && !coordinator.claimGesture(this)) {
+      // A sibling drawer owns the gesture. Taking it would route it to a behavior which never
+      // feeds the helper.
+      intercept = false;
+    }
+    if (tracer != null) tracer.endPhase(child, DrawerTracer.PHASE_INTERCEPT);
+    return intercept;
   }
 
   boolean onTouchEvent(MotionEvent ev) {
-    dragger.processTouchEvent(ev);
+    if (recorder != null) {
+      recorder.record(ev);
+    }
+    if (coordinator.rejectsGesture(ev)) {
+      return false;
+    }
+    DrawerTracer tracer = this.tracer;
+    if (tracer != null) tracer.beginPhase(child, DrawerTracer.PHASE_TOUCH);
+    // A sibling drawer which owns the gesture is driving the shared helper. This is only a
+    // cancel telling us the gesture was taken.
+    if (coordinator.claimGesture(this)) {
+      predictor.addMovement(ev);
+      coordinator.processTouchEvent(ev);
+      if (ev.getActionMasked() == MotionEvent.ACTION_MOVE) {
+        updatePredictedLead();
+      }
+    }
 
     switch (ev.getActionMasked()) {
       case MotionEvent.ACTION_DOWN: {
@@ -212,8 +853,7 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
         float x = ev.getX();
         float y = ev.getY();
         boolean peekingOnly = true;
-        View touchedView = dragger.findTopChildUnder((int) x, (int) y);
-        if (touchedView != null && isContentView(child)) {
+        if (!gestureTakenOver && isContentUnder(x, y)) {
           final float dx = x - initialMotionX;
           final float dy = y - initialMotionY;
           final int slop = dragger.getTouchSlop();
@@ -225,16 +865,19 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
           }
         }
         closeDrawers(peekingOnly);
+        coolDown();
         break;
       }
 
       case MotionEvent.ACTION_CANCEL: {
         closeDrawers(true);
+        coolDown();
         childrenCanceledTouch = false;
         break;
       }
     }
 
+    if (tracer != null) tracer.endPhase(child, DrawerTracer.PHASE_TOUCH);
     return true;
   }
 
@@ -244,29 +887,33 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
     }
 
     removeCallbacks();
-
-    boolean needsSettle;
-    if (isLeft) {
-      needsSettle = dragger.smoothSlideViewTo(child, -child.getWidth(), child.getTop());
-    } else {
-      needsSettle = dragger.smoothSlideViewTo(child, parent.getWidth(), child.getTop());
-    }
+    settleTo(closedLeft(), 0);
     isPeeking = false;
-
-    if (needsSettle) {
-      ViewCompat.postOnAnimation(parent, draggerSettle);
-    }
   }
 
   @Override public void onViewCaptured(@NonNull View capturedChild, int activePointerId) {
     isPeeking = false;
+    predictedLead = 0;
+    if (meter != null) {
+      meter.start(child, downTime);
+    }
+    predictor.track(activePointerId);
+    // The finger takes over from wherever a running settle got to.
+    stopSettle();
   }
 
   @Override public void onViewReleased(@NonNull View releasedChild, float xvel, float yvel) {
+    // The settle takes over from where the drawer was drawn, lead included.
+    predictedLead = 0;
+    settleReleased(xvel);
+  }
+
+  /** Settle open or closed after a drag ends with the drawer moving at {@code xvel}. */
+  private void settleReleased(float xvel) {
     // Offset is how open the drawer is, therefore left/right values
     // are reversed from one another.
     float offset = onScreen;
-    int childWidth = releasedChild.getWidth();
+    int childWidth = child.getWidth();
 
     int left;
     if (isLeft) {
@@ -276,26 +923,20 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
       left = xvel < 0 || xvel == 0 && offset > 0.5f ? width - childWidth : width;
     }
 
-    dragger.settleCapturedViewAt(left, releasedChild.getTop());
-    ViewCompat.postOnAnimation(parent, draggerSettle);
+    settleTo(left, xvel);
   }
 
   @Override public void onViewDragStateChanged(int state) {
-    updateDrawerState(state, dragger.getCapturedView());
+    // The coordinator only routes state changes for our own drawer. Settling is driven by our
+    // spring, so the helper going idle after a release means the settle has only just begun.
+    if (state == ViewDragHelper.STATE_IDLE && spring.isRunning()) {
+      state = ViewDragHelper.STATE_SETTLING;
+    }
+    updateDrawerState(state, child);
   }
 
-  private void updateDrawerState(int activeState,@Nullable View activeDrawer) {
-      @State final int state = dragger.getViewDragState();
-    if (DEBUG) {
-      if (activeDrawer != null)
-        Log.d("updateDrawerState","activeState: "
-                + activeState + "activeDrawer position: "
-                + activeDrawer.getLeft() + ":" + activeDrawer.getRight());
-      else
-        Log.d("updateDrawerState", "activeState: "
-                 + "activeDrawer is null");
-    }
-    if (activeDrawer != null && activeState == ViewDragHelper.STATE_IDLE) {
+  private void updateDrawerState(@State int state, View activeDrawer) {
+    if (state == ViewDragHelper.STATE_IDLE) {
       if (onScreen == 0) {
         dispatchOnDrawerClosed(activeDrawer);
       } else if (onScreen == 1) {
@@ -304,29 +945,94 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
     }
 
     if (state != drawerState) {
+      if (drawerState == ViewDragHelper.STATE_IDLE) {
+        promoteLayers();
+      } else if (state == ViewDragHelper.STATE_IDLE) {
+        demoteLayers();
+        if (meter != null) {
+          meter.end(activeDrawer, onScreen == 1);
+        }
+      }
       drawerState = state;
+      listeners.dispatchStateChanged(activeDrawer, state);
+      snapshotChanged();
+    }
+  }
+
+  /** Publish a snapshot on the next frame, however many times the state changes before then. */
+  private void snapshotChanged() {
+    if (!snapshotPending && publisher.hasObservers()) {
+      snapshotPending = true;
+      ViewCompat.postOnAnimation(parent, publishSnapshot);
+    }
+  }
+
+  /**
+   * Promote the closed drawer and render it into its layer now, so that the first frame which
+   * shows it only has to composite. Returns false if the layer policy leaves the drawer alone or
+   * it cannot be rendered yet.
+   */
+  private boolean warmUp() {
+    if (!parent.isHardwareAccelerated()
+        || !ViewCompat.isAttachedToWindow(child)
+        || child.getWidth() == 0
+        || child.getLayerType() != View.LAYER_TYPE_NONE
+        || !layerPolicy.shouldPromote(child, child)) {
+      return false;
+    }
+    child.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+    promotedViews.add(child);
+    child.buildLayer();
+    return true;
+  }
+
+  /** Drop the warmed-up layer once a gesture touched the drawer but ended without moving it. */
+  private void coolDown() {
+    if (drawerState == ViewDragHelper.STATE_IDLE && !peekPending) {
+      demoteLayers();
+      if (meter != null) {
+        meter.end(child, onScreen == 1);
+      }
+    }
+  }
+
+  private void promoteLayers() {
+    if (!parent.isHardwareAccelerated()) {
+      return;
+    }
+    final int childCount = parent.getChildCount();
+    for (int i = 0; i < childCount; i++) {
+      final View view = parent.getChildAt(i);
+      // Sibling drawers are not moving and keep their own layers.
+      if (!isEffectTarget(view) && view != child
+          || view.getLayerType() != View.LAYER_TYPE_NONE) {
+        continue;
+      }
+      if (layerPolicy.shouldPromote(child, view)) {
+        view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        promotedViews.add(view);
+      }
+    }
+  }
+
+  private void demoteLayers() {
+    for (int i = 0, size = promotedViews.size(); i < size; i++) {
+      promotedViews.get(i).setLayerType(View.LAYER_TYPE_NONE, null);
+    }
+    promotedViews.clear();
+    if (warmLayerKept) {
+      warmLayerKept = false;
+      parent.getContext().unregisterComponentCallbacks(trimWarmLayer);
     }
-      if (listener != null)
-          listener.onDrawerStateChanged(activeDrawer,drawerState);
   }
 
   private void dispatchOnDrawerClosed(View drawerView) {
     if ((openState & FLAG_IS_OPENED) == FLAG_IS_OPENED) {
       openState = 0;
 
-      updateChildrenImportantForAccessibility(drawerView, false);
-
-      // Only send WINDOW_STATE_CHANGE if the host has window focus. This
-      // may change if support for multiple foreground windows (e.g. IME)
-      // improves.
-      if (parent.hasWindowFocus()) {
-        final View rootView = parent.getRootView();
-        if (rootView != null) {
-          rootView.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
-        }
-      }
-        if (listener != null)
-            listener.onDrawerClosed(drawerView);
+      scheduleAccessibilityUpdate(false);
+      listeners.dispatchClosed(drawerView);
+      snapshotChanged();
     }
   }
 
@@ -334,16 +1040,47 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
     if ((openState & FLAG_IS_OPENED) == 0) {
       openState = FLAG_IS_OPENED;
 
-      updateChildrenImportantForAccessibility(drawerView, true);
+      scheduleAccessibilityUpdate(true);
+
+      drawerView.requestFocus();
+      listeners.dispatchOpened(drawerView);
+      snapshotChanged();
+    }
+  }
+
+  /**
+   * Accessibility updates walk every child of the parent and may fire a window event. Run them
+   * after the frame which settled the drawer rather than inside it, and only for the state the
+   * drawer ends up in if it moves again before then.
+   */
+  private void scheduleAccessibilityUpdate(boolean isDrawerOpen) {
+    accessibilityOpen = isDrawerOpen;
+    if (!accessibilityUpdatePending) {
+      accessibilityUpdatePending = true;
+      parent.post(accessibilityUpdate);
+    }
+  }
+
+  private void updateAccessibility(boolean isDrawerOpen) {
+    updateChildrenImportantForAccessibility(child, isDrawerOpen);
 
-      // Only send WINDOW_STATE_CHANGE if the host has window focus.
-      if (parent.hasWindowFocus()) {
+    int state = isDrawerOpen ? ANNOUNCED_OPENED : ANNOUNCED_CLOSED;
+    if (state == announcedState) {
+      return; // The drawer came back to where it was before anyone was told it left.
+    }
+    // Only send WINDOW_STATE_CHANGE if the host has window focus. This
+    // may change if support for multiple foreground windows (e.g. IME)
+    // improves.
+    if (parent.hasWindowFocus()) {
+      announcedState = state;
+      if (isDrawerOpen) {
         parent.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
+      } else {
+        final View rootView = parent.getRootView();
+        if (rootView != null) {
+          rootView.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED);
+        }
       }
-
-      drawerView.requestFocus();
-        if (listener != null)
-            listener.onDrawerOpened(drawerView);
     }
   }
 
@@ -351,45 +1088,93 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
     final int childCount = parent.getChildCount();
     for (int i = 0; i < childCount; i++) {
       final View child = parent.getChildAt(i);
+      if (child instanceof ContentScrimDrawer || child instanceof EdgeShadow) {
+        continue; // Never important for accessibility, whatever the drawer's state.
+      }
+      final int importance;
       if (!isDrawerOpen && child != this.child
           || isDrawerOpen && child == drawerView) {
         // Drawer is closed and this is a content view or this is an
         // open drawer view, so it should be visible.
-        ViewCompat.setImportantForAccessibility(child,
-            ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_YES);
+        importance = ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_YES;
       } else {
-        ViewCompat.setImportantForAccessibility(child,
-            ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS);
+        importance = ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO_HIDE_DESCENDANTS;
+      }
+      if (ViewCompat.getImportantForAccessibility(child) != importance) {
+        ViewCompat.setImportantForAccessibility(child, importance);
       }
     }
   }
 
   @Override
   public void onViewPositionChanged(@NonNull View changedView, int left, int top, int dx, int dy) {
-    int childWidth = changedView.getWidth();
-    Log.d("onViewPositionChanged",left +":" +top+ ":"+dx+":"+dy);
+    if (useTranslation) {
+      // Move the displacement the drag helper applied to layout over to the translation.
+      int openLeft = openLeft();
+      float oldTranslation = changedView.getTranslationX();
+      float translation = oldTranslation + left - openLeft;
+      int shift = changedView.getLeft() - openLeft;
+      if (shift != 0) {
+        changedView.offsetLeftAndRight(-shift);
+      }
+      changedView.setTranslationX(translation);
+      left = openLeft + (int) translation;
+      dx = (int) (translation - oldTranslation);
+    }
+    onDrawerMoved(left, dx);
+  }
+
+  /**
+   * Update the scrim, offset, and visibility after the drawer moved by {@code dx} to
+   * {@code left}, as drawn.
+   */
+  private void onDrawerMoved(int left, int dx) {
+    DrawerTracer tracer = this.tracer;
+    if (tracer != null) tracer.beginPhase(child, DrawerTracer.PHASE_POSITION);
+    int childWidth = child.getWidth();
     // This reverses the positioning shown in onLayout.
     float offset;
+    int baseAlpha = (scrimColor & 0xff000000) >>> 24;
+    int scrimLeft;
+    int scrimRight;
     if (isLeft) {
       int edge = childWidth + left;
       offset = (float) edge / childWidth;
-      scrimDrawer.setBounds(edge, 0, parent.getWidth(), parent.getHeight());
+      scrimLeft = edge;
+      scrimRight = parent.getWidth();
     } else {
       int edge = parent.getWidth() - left;
       offset = (float) edge / childWidth;
-      scrimDrawer.setBounds(0, 0, left, parent.getHeight());
+      scrimLeft = 0;
+      scrimRight = left;
     }
-
-    int baseAlpha = (scrimColor & 0xff000000) >>> 24;
     int imag = (int) (baseAlpha * offset);
     int color = imag << 24 | (scrimColor & 0xffffff);
-    scrimDrawer.setColor(color);
+    scrimDrawer.update(color, offset, scrimLeft, 0, scrimRight, parent.getHeight());
+    if (shadow != null) {
+      updateShadow(left);
+    }
+    updateContentEffect(offset);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      updateContentClip(left, offset);
+    }
+    if (meter != null) {
+      meter.moved();
+    }
 
-    setDrawerViewOffset(changedView,offset);
+    setDrawerViewOffset(child,offset);
     boolean gone = offset == 0;
-    changedView.setVisibility(gone ? INVISIBLE : VISIBLE);
+    child.setVisibility(gone ? INVISIBLE : VISIBLE);
     scrimDrawer.setVisible(!gone);
-    parent.invalidate();
+
+    // Only the area swept by the drawer needs redrawing. The strip the scrim grew into or gave up
+    // lies inside that sweep, and the scrim invalidates its own bounds.
+    int top = child.getTop();
+    int bottom = top + child.getHeight();
+    dirty.set(left - dx, top, left - dx + childWidth, bottom);
+    dirty.union(left, top, left + childWidth, bottom);
+    parent.invalidate(dirty);
+    if (tracer != null) tracer.endPhase(child, DrawerTracer.PHASE_POSITION);
   }
 
   private void setDrawerViewOffset(View drawerView,float slideOffset) {
@@ -398,21 +1183,106 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
     }
 
     onScreen = slideOffset;
-    if (listener != null)
-      listener.onDrawerSlide(drawerView,slideOffset);
+    listeners.dispatchSlide(drawerView, slideOffset);
+    snapshotChanged();
+  }
+
+  boolean onStartNestedScroll(int axes, int type) {
+    // Only a finger drives the drawer. A fling continuing after it lifts does not.
+    if ((axes & ViewCompat.SCROLL_AXIS_HORIZONTAL) == 0
+        || type != ViewCompat.TYPE_TOUCH
+        || child.getWidth() == 0
+        || dragger.getViewDragState() != ViewDragHelper.STATE_IDLE
+        || spring.isRunning()) {
+      return false;
+    }
+    nestedDragging = false;
+    return true;
+  }
+
+  void onNestedPreScroll(int dx, int[] consumed) {
+    // Once the drawer has started moving it takes the scroll before the child does, in both
+    // directions, until it is fully open or closed.
+    if (nestedDragging) {
+      consumed[0] = nestedDragBy(dx);
+    }
+  }
+
+  void onNestedScroll(int dxUnconsumed) {
+    // The child scrolled as far as it can. Its overscroll pulls the drawer in or pushes it out.
+    if (dxUnconsumed != 0) {
+      nestedDragBy(dxUnconsumed);
+    }
+  }
+
+  boolean onNestedPreFling(float velocityX) {
+    if (!nestedDragging) {
+      return false;
+    }
+    // Scroll velocity runs opposite to the finger, and to the drawer.
+    releaseNestedDrag(-velocityX);
+    return true;
+  }
+
+  void onStopNestedScroll() {
+    if (nestedDragging) {
+      releaseNestedDrag(0);
+    }
+  }
+
+  /** Move the drawer by a scroll of {@code dx} and return how much of it was used. */
+  private int nestedDragBy(int dx) {
+    int left = drawerLeft();
+    int newLeft = clampDrawerLeft(left - dx);
+    if (newLeft == left) {
+      return 0;
+    }
+    if (!nestedDragging) {
+      if (meter != null) {
+        meter.start(child, downTime);
+      }
+      nestedDragging = true;
+      removeCallbacks();
+      isPeeking = false;
+      updateDrawerState(ViewDragHelper.STATE_DRAGGING, child);
+    }
+    moveDrawerTo(newLeft);
+    return left - newLeft;
+  }
+
+  private void releaseNestedDrag(float xvel) {
+    nestedDragging = false;
+    settleReleased(xvel);
+    if (!spring.isRunning()) {
+      // Released exactly open or closed.
+      updateDrawerState(ViewDragHelper.STATE_IDLE, child);
+    }
   }
 
   @Override public void onEdgeTouched(int edgeFlags, int pointerId) {
+    // The layout pass which follows inflation lands well inside the peek delay.
+    inflateDrawer();
+    if (meter != null) {
+      meter.start(child, downTime);
+    }
+    peekPending = true;
     parent.postDelayed(peekRunnable, PEEK_DELAY);
   }
 
   @Override public boolean tryCaptureView(@NonNull View child, int pointerId) {
-    return isDrawerView(child);
+    return isDrawerView(child) && !gestureTakenOver;
   }
 
   @Override public void onEdgeDragStarted(int edgeFlags, int pointerId) {
     if (((edgeFlags & ViewDragHelper.EDGE_LEFT) == ViewDragHelper.EDGE_LEFT && isLeft)
         || ((edgeFlags & ViewDragHelper.EDGE_RIGHT) == ViewDragHelper.EDGE_RIGHT && !isLeft)) {
+      if (child.getWidth() == 0) {
+        // Inflated on this gesture's edge touch but not laid out yet. Nothing to drag.
+        return;
+      }
+      if (gestureTakenOver) {
+        return; // An open or close call took the drawer from this gesture.
+      }
       dragger.captureChildView(child, pointerId);
     }
   }
@@ -422,37 +1292,76 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
   }
 
   @Override public int clampViewPositionHorizontal(@NonNull View child, int left, int dx) {
-    if (isLeft) {
-      return Math.max(-child.getWidth(), Math.min(left, 0));
-    } else {
-      int width = parent.getWidth();
-      return Math.max(width - child.getWidth(), Math.min(left, width));
+    // Clamp the position as drawn and hand back the layout position the helper expects.
+    int translation = useTranslation ? (int) child.getTranslationX() : 0;
+    if (predictionMillis == 0) {
+      return clampDrawerLeft(left + translation) - translation;
     }
+    // The helper moves the drawer relative to where it was drawn, lead included. Take the last
+    // lead back out to find where the finger alone puts it, then lead from there.
+    int tracked = clampDrawerLeft(left + translation - predictedLead);
+    int predicted = predictedLeft(tracked);
+    predictedLead = predicted - tracked;
+    return predicted - translation;
+  }
+
+  /** Where to draw the drawer when the finger alone puts it at {@code tracked}. */
+  private int predictedLeft(int tracked) {
+    float lead = predictor.velocity() * predictionMillis;
+    lead = Math.max(-maxPredictedLead, Math.min(lead, maxPredictedLead));
+    return clampDrawerLeft(tracked + (int) lead);
+  }
+
+  /**
+   * The helper only clamps, which updates the lead, on moves with a horizontal delta. Bring the
+   * lead in line with the finger after every other move too, so that a finger which holds still
+   * after a fling is not left behind by the drawer.
+   */
+  private void updatePredictedLead() {
+    if (predictionMillis == 0
+        || dragger.getViewDragState() != ViewDragHelper.STATE_DRAGGING
+        || dragger.getCapturedView() != child) {
+      return;
+    }
+    int tracked = drawerLeft() - predictedLead;
+    int predicted = predictedLeft(tracked);
+    predictedLead = predicted - tracked;
+    moveDrawerTo(predicted);
   }
 
   @Override public int clampViewPositionVertical(@NonNull View child, int top, int dy) {
-    Log.d("ViewPositionVertical", "" + child.getTop());
     return child.getTop();
   }
 
   boolean onLayoutChild() {
+    DrawerTracer tracer = this.tracer;
+    if (tracer != null) tracer.beginPhase(child, DrawerTracer.PHASE_LAYOUT);
     int width = parent.getMeasuredWidth();
     int height = parent.getMeasuredHeight();
     int childWidth = child.getMeasuredWidth();
     int childHeight = child.getMeasuredHeight();
 
-    int childLeft;
-    float newOffset;
-    if (isLeft) {
-      childLeft = -childWidth + (int) (childWidth * onScreen);
-      newOffset = (float) (childWidth + childLeft) / childWidth;
+    int drawerLeft;
+    if (useTranslation && drawerState != ViewDragHelper.STATE_IDLE) {
+      // Mid-gesture the translation is the source of truth. Leave the drawer where it is.
+      drawerLeft = drawerLeft();
+    } else if (isLeft) {
+      drawerLeft = -childWidth + (int) (childWidth * onScreen);
     } else {
-      childLeft = width - (int) (childWidth * onScreen);
-      newOffset = (float) (width - childLeft) / childWidth;
+      drawerLeft = width - (int) (childWidth * onScreen);
     }
+    float newOffset = isLeft
+        ? (float) (childWidth + drawerLeft) / childWidth
+        : (float) (width - drawerLeft) / childWidth;
 
     boolean changeOffset = newOffset != onScreen;
 
+    // In translation mode the drawer is always laid out open and moved only by its translation.
+    int childLeft = useTranslation ? (isLeft ? 0 : width - childWidth) : drawerLeft;
+    if (useTranslation) {
+      child.setTranslationX(drawerLeft - childLeft);
+    }
+
     CoordinatorLayout.LayoutParams lp = (CoordinatorLayout.LayoutParams) child.getLayoutParams();
     int vgrav = lp.gravity & Gravity.VERTICAL_GRAVITY_MASK;
 
@@ -488,14 +1397,26 @@ final class BehaviorDelegate extends ViewDragHelper.Callback {
       }
     }
 
-    if (changeOffset) {
-      setDrawerViewOffset(child,newOffset);
+    if (changeOffset || positionStale) {
+      // Bring the scrim, shadow, and content along with the drawer.
+      positionStale = false;
+      onDrawerMoved(drawerLeft, 0);
     }
 
     int newVisibility = onScreen > 0 ? VISIBLE : INVISIBLE;
     if (child.getVisibility() != newVisibility) {
       child.setVisibility(newVisibility);
     }
+    if (!warmUpScheduled) {
+      warmUpScheduled = true;
+      Looper.myQueue().addIdleHandler(idleWarmUp);
+    }
+    coordinator.updateExclusionRects();
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+        && (onScreen > 0 || !clippedViews.isEmpty())) {
+      scheduleContentClip();
+    }
+    if (tracer != null) tracer.endPhase(child, DrawerTracer.PHASE_LAYOUT);
     return true;
   }
 }
@@ -23,24 +23,51 @@ import android.graphics.drawable.ColorDrawable;
 import android.os.Build;
 import android.support.design.widget.CoordinatorLayout;
 import android.support.design.widget.CoordinatorLayout.LayoutParams;
+import android.support.v4.view.ViewCompat;
 import android.view.View;
+import android.view.ViewGroup;
 
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
 
 interface ContentScrimDrawer {
-  void setColor(int color);
-  void setBounds(int left, int top, int right, int bottom);
+  /**
+   * Update the color and bounds together. Implementations invalidate at most once per call so
+   * that a drag frame costs a single scrim redraw.
+   *
+   * @param color The scrim color with its alpha already scaled by {@code offset}
+   * @param offset How open the drawer is, from 0-1
+   */
+  void update(int color, float offset, int left, int top, int right, int bottom);
   void setVisible(boolean gone);
+  /** Take the scrim out of the parent for good, once its drawer has left. */
+  void remove();
 
   @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
   final class JellyBeanMr2 extends ColorDrawable implements ContentScrimDrawer {
     private final View parent;
     private boolean visible;
+    private boolean updating;
 
     JellyBeanMr2(CoordinatorLayout parent) {
       this.parent = parent;
     }
 
+    @Override
+    public void update(int color, float offset, int left, int top, int right, int bottom) {
+      // Both setBounds and setColor invalidate. Swallow those and invalidate once at the end.
+      updating = true;
+      setBounds(left, top, right, bottom);
+      setColor(color);
+      updating = false;
+      invalidateSelf();
+    }
+
+    @Override public void invalidateSelf() {
+      if (!updating) {
+        super.invalidateSelf();
+      }
+    }
+
     @Override public void setVisible(boolean visible) {
       if (this.visible != visible) {
         if (visible) {
@@ -51,6 +78,10 @@ interface ContentScrimDrawer {
         this.visible = visible;
       }
     }
+
+    @Override public void remove() {
+      setVisible(false);
+    }
   }
 
   @SuppressLint("ViewConstructor") // Created only programmatically.
@@ -64,6 +95,7 @@ interface ContentScrimDrawer {
 
     Base(CoordinatorLayout parent, View child) {
       super(parent.getContext());
+      ViewCompat.setImportantForAccessibility(this, ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO);
       // Draw at the same level of the child.
       parent.addView(this, parent.indexOfChild(child),
           new LayoutParams(MATCH_PARENT, MATCH_PARENT));
@@ -73,17 +105,73 @@ interface ContentScrimDrawer {
       canvas.drawRect(left, top, right, bottom, colorPaint);
     }
 
-    @Override public void setColor(int color) {
+    @Override
+    public void update(int color, float offset, int left, int top, int right, int bottom) {
+      if (color == colorPaint.getColor()
+          && left == this.left && top == this.top && right == this.right && bottom == this.bottom) {
+        return;
+      }
+      // Cover both the old and new bounds so the strip the scrim gave up is also redrawn.
+      int dirtyLeft = Math.min(left, this.left);
+      int dirtyTop = Math.min(top, this.top);
+      int dirtyRight = Math.max(right, this.right);
+      int dirtyBottom = Math.max(bottom, this.bottom);
       colorPaint.setColor(color);
-      invalidate(left, top, right, bottom);
-    }
-
-    @Override public void setBounds(int left, int top, int right, int bottom) {
       this.left = left;
       this.top = top;
       this.right = right;
       this.bottom = bottom;
-      invalidate(left, top, right, bottom);
+      invalidate(dirtyLeft, dirtyTop, dirtyRight, dirtyBottom);
+    }
+
+    @Override public void setVisible(boolean visible) {
+      if (this.visible != visible) {
+        setVisibility(visible ? VISIBLE : INVISIBLE);
+        this.visible = visible;
+      }
+    }
+
+    @Override public void remove() {
+      ViewGroup parent = (ViewGroup) getParent();
+      if (parent != null) {
+        parent.removeView(this);
+      }
+    }
+  }
+
+  /**
+   * A scrim which is drawn once at full strength and then only moved and faded through its view
+   * properties, so drag frames never redraw it.
+   */
+  @SuppressLint("ViewConstructor") // Created only programmatically.
+  final class Property extends View implements ContentScrimDrawer {
+    private boolean visible;
+
+    Property(CoordinatorLayout parent, View child, int color) {
+      super(parent.getContext());
+      ViewCompat.setImportantForAccessibility(this, ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO);
+      setBackgroundColor(color);
+      setAlpha(0);
+      setVisibility(INVISIBLE);
+      // Draw at the same level of the child.
+      parent.addView(this, parent.indexOfChild(child),
+          new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+    }
+
+    @Override public boolean hasOverlappingRendering() {
+      // A single solid fill can be faded without an offscreen buffer.
+      return false;
+    }
+
+    @Override
+    public void update(int color, float offset, int left, int top, int right, int bottom) {
+      setAlpha(offset);
+      // The scrim fills the parent, so slide it until the edge facing the drawer lines up.
+      if (right >= getWidth()) {
+        setTranslationX(left);
+      } else {
+        setTranslationX(right - getWidth());
+      }
     }
 
     @Override public void setVisible(boolean visible) {
@@ -92,5 +180,12 @@ interface ContentScrimDrawer {
         this.visible = visible;
       }
     }
+
+    @Override public void remove() {
+      ViewGroup parent = (ViewGroup) getParent();
+      if (parent != null) {
+        parent.removeView(this);
+      }
+    }
   }
 }
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.widget.ViewDragHelper;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Owns the single {@link ViewDragHelper} shared by every drawer in a {@link CoordinatorLayout}.
+ * Each event is run through the helper once no matter how many drawers see it, and the helper's
+ * callbacks are routed to the delegate of the drawer (or edge) involved.
+ */
+final class DragCoordinator extends ViewDragHelper.Callback {
+  private static final int MIN_FLING_VELOCITY = 400; // dips per second
+  private static final BehaviorDelegate[] NO_DELEGATES = new BehaviorDelegate[0];
+
+  static DragCoordinator get(CoordinatorLayout parent) {
+    DragCoordinator coordinator =
+        (DragCoordinator) parent.getTag(R.id.drawer_behavior_drag_coordinator);
+    if (coordinator == null) {
+      coordinator = new DragCoordinator(parent);
+      parent.setTag(R.id.drawer_behavior_drag_coordinator, coordinator);
+    }
+    return coordinator;
+  }
+
+  final ViewDragHelper dragger;
+  private final CoordinatorLayout parent;
+  private final Rect hitRect = new Rect();
+
+  private BehaviorDelegate[] delegates = NO_DELEGATES;
+  /** The delegate whose drawer the helper is currently dragging or settling. */
+  @Nullable private BehaviorDelegate activeDelegate;
+  /**
+   * The delegate which owns the current gesture: the one whose edge was touched or whose drawer
+   * was captured, or else the first to intercept it.
+   */
+  @Nullable private BehaviorDelegate gestureOwner;
+
+  // Identity of the last event run through the helper's intercept check. Behaviors of sibling
+  // drawers are offered the same event in turn and reuse the answer.
+  @Nullable private MotionEvent lastEvent;
+  private long lastEventTime;
+  private int lastAction;
+  private boolean lastIntercept;
+  /** The event the helper is handling, which tells where a pointer it wants to capture is. */
+  @Nullable private MotionEvent helperEvent;
+
+  /** True if the current gesture started away from every closed drawer's edge. */
+  private boolean gestureRejected;
+  /**
+   * The exclusion rects last handed to the parent, updated in place. The platform keeps the rects
+   * it is given, so they are only ever changed right before being handed over again.
+   */
+  private final ArrayList<Rect> exclusionRects = new ArrayList<>();
+
+  /** Children which were under a pointer when it went down in the current gesture. */
+  private View[] touchTargets = new View[4];
+  private int touchTargetCount;
+  /** Reused for every cancellation so that starting a peek does not allocate. */
+  @Nullable private MotionEvent cancelEvent;
+
+  private DragCoordinator(CoordinatorLayout parent) {
+    this.parent = parent;
+    float density = parent.getResources().getDisplayMetrics().density;
+    dragger = ViewDragHelper.create(parent, this);
+    dragger.setMinVelocity(MIN_FLING_VELOCITY * density);
+  }
+
+  void register(BehaviorDelegate delegate) {
+    BehaviorDelegate[] delegates = this.delegates;
+    BehaviorDelegate[] newDelegates = new BehaviorDelegate[delegates.length + 1];
+    System.arraycopy(delegates, 0, newDelegates, 0, delegates.length);
+    newDelegates[delegates.length] = delegate;
+    this.delegates = newDelegates;
+    updateEdgeTracking();
+  }
+
+  void unregister(BehaviorDelegate delegate) {
+    if (dragger.getCapturedView() == delegate.drawerView()) {
+      dragger.abort();
+    }
+    if (activeDelegate == delegate) {
+      activeDelegate = null;
+    }
+    if (gestureOwner == delegate) {
+      gestureOwner = null;
+    }
+    BehaviorDelegate[] delegates = this.delegates;
+    for (int i = 0; i < delegates.length; i++) {
+      if (delegates[i] == delegate) {
+        BehaviorDelegate[] newDelegates = new BehaviorDelegate[delegates.length - 1];
+        System.arraycopy(delegates, 0, newDelegates, 0, i);
+        System.arraycopy(delegates, i + 1, newDelegates, i, delegates.length - i - 1);
+        this.delegates = newDelegates;
+        updateEdgeTracking();
+        updateExclusionRects();
+        return;
+      }
+    }
+  }
+
+  private void updateEdgeTracking() {
+    int edges = 0;
+    for (BehaviorDelegate delegate : delegates) {
+      edges |= delegate.isLeft ? ViewDragHelper.EDGE_LEFT : ViewDragHelper.EDGE_RIGHT;
+    }
+    dragger.setEdgeTrackingEnabled(edges);
+  }
+
+  /**
+   * Returns true if the gesture {@code ev} belongs to cannot involve any drawer, in which case it
+   * must not reach the helper or the delegates. Decided once on the down event: while every drawer
+   * is closed and at rest, a gesture starting outside all of their edge regions is rejected.
+   */
+  boolean rejectsGesture(MotionEvent ev) {
+    if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+      gestureRejected = startsAwayFromEdges(ev.getX());
+    }
+    return gestureRejected;
+  }
+
+  private boolean startsAwayFromEdges(float x) {
+    int width = parent.getWidth();
+    for (BehaviorDelegate delegate : delegates) {
+      if (!delegate.isClosedAndIdle()) {
+        return false;
+      }
+      int edge = delegate.edgeRegionWidth();
+      if (delegate.isLeft ? x < edge : x >= width - edge) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Publish each drawer's edge region as a system gesture exclusion rect so that the system's back
+   * gesture does not compete with pulling the drawer. Only Android 10 and newer have them.
+   */
+  void updateExclusionRects() {
+    if (Build.VERSION.SDK_INT < 29) {
+      return;
+    }
+    int width = parent.getWidth();
+    ArrayList<Rect> rects = exclusionRects;
+    int count = 0;
+    boolean changed = false;
+    for (BehaviorDelegate delegate : delegates) {
+      View drawer = delegate.drawerView();
+      int edge = delegate.edgeRegionWidth();
+      if (edge == 0 || drawer.getHeight() == 0) {
+        continue;
+      }
+      int left = delegate.isLeft ? 0 : width - edge;
+      int right = left + edge;
+      int top = drawer.getTop();
+      int bottom = drawer.getBottom();
+      if (count == rects.size()) {
+        rects.add(new Rect(left, top, right, bottom));
+        changed = true;
+      } else {
+        Rect rect = rects.get(count);
+        if (rect.left != left || rect.top != top || rect.right != right || rect.bottom != bottom) {
+          rect.set(left, top, right, bottom);
+          changed = true;
+        }
+      }
+      count++;
+    }
+    while (rects.size() > count) {
+      rects.remove(rects.size() - 1);
+      changed = true;
+    }
+    if (changed) {
+      GestureExclusion.setRects(parent, rects);
+    }
+  }
+
+  /**
+   * Run {@code ev} through the helper's intercept check, or reuse the answer if a sibling drawer
+   * already did. Drawers other than the one which owns the gesture are only ever offered a cancel
+   * and always get {@code false}.
+   */
+  boolean shouldInterceptTouchEvent(BehaviorDelegate delegate, MotionEvent ev) {
+    int action = ev.getActionMasked();
+    if (action == MotionEvent.ACTION_DOWN) {
+      gestureOwner = null;
+    }
+    if (gestureOwner != null && gestureOwner != delegate) {
+      return false;
+    }
+    if (ev != lastEvent || ev.getEventTime() != lastEventTime || action != lastAction) {
+      lastEvent = ev;
+      lastEventTime = ev.getEventTime();
+      lastAction = action;
+      recordTouchTargets(ev);
+      helperEvent = ev;
+      lastIntercept = dragger.shouldInterceptTouchEvent(ev);
+      helperEvent = null;
+    }
+    // Running the helper may have handed the gesture to the drawer whose edge or view it hit.
+    return lastIntercept && (gestureOwner == null || gestureOwner == delegate);
+  }
+
+  /** Run {@code ev} through the helper for the drawer which owns the gesture. */
+  void processTouchEvent(MotionEvent ev) {
+    helperEvent = ev;
+    dragger.processTouchEvent(ev);
+    helperEvent = null;
+  }
+
+  private void recordTouchTargets(MotionEvent ev) {
+    int action = ev.getActionMasked();
+    if (action == MotionEvent.ACTION_DOWN) {
+      clearTouchTargets();
+    } else if (action != MotionEvent.ACTION_POINTER_DOWN) {
+      return;
+    }
+    int pointerIndex = ev.getActionIndex();
+    int x = (int) ev.getX(pointerIndex);
+    int y = (int) ev.getY(pointerIndex);
+    for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+      View child = parent.getChildAt(i);
+      if (child.getVisibility() != View.VISIBLE) {
+        continue;
+      }
+      child.getHitRect(hitRect);
+      if (hitRect.contains(x, y)) {
+        addTouchTarget(child);
+      }
+    }
+  }
+
+  private void addTouchTarget(View child) {
+    View[] touchTargets = this.touchTargets;
+    int count = touchTargetCount;
+    for (int i = 0; i < count; i++) {
+      if (touchTargets[i] == child) {
+        return;
+      }
+    }
+    if (count == touchTargets.length) {
+      View[] newTouchTargets = new View[count * 2];
+      System.arraycopy(touchTargets, 0, newTouchTargets, 0, count);
+      this.touchTargets = touchTargets = newTouchTargets;
+    }
+    touchTargets[count] = child;
+    touchTargetCount = count + 1;
+  }
+
+  private void clearTouchTargets() {
+    for (int i = 0; i < touchTargetCount; i++) {
+      touchTargets[i] = null;
+    }
+    touchTargetCount = 0;
+  }
+
+  /**
+   * Send a cancel to the children which could have received the current gesture, rather than to
+   * every child of the parent.
+   */
+  void cancelTouchTargets() {
+    MotionEvent cancelEvent = this.cancelEvent;
+    if (cancelEvent == null) {
+      final long now = SystemClock.uptimeMillis();
+      cancelEvent = MotionEvent.obtain(now, now, MotionEvent.ACTION_CANCEL, 0.0f, 0.0f, 0);
+      this.cancelEvent = cancelEvent;
+    }
+    for (int i = 0; i < touchTargetCount; i++) {
+      // Children may leave the event offset into their coordinates.
+      cancelEvent.setLocation(0.0f, 0.0f);
+      touchTargets[i].dispatchTouchEvent(cancelEvent);
+    }
+    clearTouchTargets();
+  }
+
+  /**
+   * Record {@code delegate} as the owner of the current gesture unless the helper already gave it
+   * to a drawer. Returns false if a different drawer owns it, in which case the event must not
+   * reach the helper and the delegate must not intercept it.
+   */
+  boolean claimGesture(BehaviorDelegate delegate) {
+    if (gestureOwner != null && gestureOwner != delegate) {
+      return false;
+    }
+    gestureOwner = delegate;
+    return true;
+  }
+
+  @Nullable private BehaviorDelegate delegateFor(View view) {
+    for (BehaviorDelegate delegate : delegates) {
+      if (delegate.isDrawerView(view)) {
+        return delegate;
+      }
+    }
+    return null;
+  }
+
+  @Nullable private BehaviorDelegate delegateForEdge(int edgeFlags) {
+    boolean left = (edgeFlags & ViewDragHelper.EDGE_LEFT) == ViewDragHelper.EDGE_LEFT;
+    boolean right = (edgeFlags & ViewDragHelper.EDGE_RIGHT) == ViewDragHelper.EDGE_RIGHT;
+    for (BehaviorDelegate delegate : delegates) {
+      if (delegate.isLeft ? left : right) {
+        return delegate;
+      }
+    }
+    return null;
+  }
+
+  @Override public boolean tryCaptureView(@NonNull View child, int pointerId) {
+    BehaviorDelegate delegate = delegateFor(child);
+    if (delegate == null) {
+      return false;
+    }
+    // The helper finds the drawer by its layout bounds, which a drawer positioned by translation
+    // fills even when it is drawn closed. Only a pointer over the drawer as drawn may grab it.
+    MotionEvent ev = helperEvent;
+    if (ev != null) {
+      int pointerIndex = ev.findPointerIndex(pointerId);
+      if (pointerIndex >= 0 && !delegate.isDrawnUnder(ev.getX(pointerIndex))) {
+        return false;
+      }
+    }
+    if (!delegate.tryCaptureView(child, pointerId)) {
+      return false;
+    }
+    gestureOwner = delegate;
+    return true;
+  }
+
+  @Override public void onViewCaptured(@NonNull View capturedChild, int activePointerId) {
+    BehaviorDelegate delegate = delegateFor(capturedChild);
+    if (delegate != null) {
+      delegate.onViewCaptured(capturedChild, activePointerId);
+    }
+  }
+
+  @Override public void onViewReleased(@NonNull View releasedChild, float xvel, float yvel) {
+    BehaviorDelegate delegate = delegateFor(releasedChild);
+    if (delegate != null) {
+      delegate.onViewReleased(releasedChild, xvel, yvel);
+    }
+  }
+
+  @Override public void onViewDragStateChanged(int state) {
+    View captured = dragger.getCapturedView();
+    BehaviorDelegate delegate = captured != null ? delegateFor(captured) : null;
+    BehaviorDelegate previous = activeDelegate;
+    if (previous != null && previous != delegate) {
+      // The helper moved on to another drawer without letting this one come to rest.
+      previous.onViewDragStateChanged(ViewDragHelper.STATE_IDLE);
+    }
+    activeDelegate = state == ViewDragHelper.STATE_IDLE ? null : delegate;
+    if (delegate != null) {
+      delegate.onViewDragStateChanged(state);
+    }
+  }
+
+  @Override
+  public void onViewPositionChanged(@NonNull View changedView, int left, int top, int dx, int dy) {
+    BehaviorDelegate delegate = delegateFor(changedView);
+    if (delegate != null) {
+      delegate.onViewPositionChanged(changedView, left, top, dx, dy);
+    }
+  }
+
+  @Override public void onEdgeTouched(int edgeFlags, int pointerId) {
+    BehaviorDelegate delegate = delegateForEdge(edgeFlags);
+    if (delegate != null) {
+      if (gestureOwner == null) {
+        gestureOwner = delegate; // A later pointer touching another edge does not take over.
+      }
+      delegate.onEdgeTouched(edgeFlags, pointerId);
+    }
+  }
+
+  @Override public void onEdgeDragStarted(int edgeFlags, int pointerId) {
+    BehaviorDelegate delegate = delegateForEdge(edgeFlags);
+    if (delegate != null) {
+      delegate.onEdgeDragStarted(edgeFlags, pointerId);
+    }
+  }
+
+  @Override public int getViewHorizontalDragRange(@NonNull View child) {
+    BehaviorDelegate delegate = delegateFor(child);
+    return delegate != null ? delegate.getViewHorizontalDragRange(child) : 0;
+  }
+
+  @Override public int clampViewPositionHorizontal(@NonNull View child, int left, int dx) {
+    BehaviorDelegate delegate = delegateFor(child);
+    return delegate != null ? delegate.clampViewPositionHorizontal(child, left, dx) : left;
+  }
+
+  @Override public int clampViewPositionVertical(@NonNull View child, int top, int dy) {
+    BehaviorDelegate delegate = delegateFor(child);
+    return delegate != null ? delegate.clampViewPositionVertical(child, top, dy) : child.getTop();
+  }
+}
@@ -21,20 +21,26 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.IntDef;
 import android.support.annotation.Keep;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.Px;
 import android.support.annotation.RestrictTo;
 import android.support.design.widget.CoordinatorLayout;
-import android.support.v4.util.SimpleArrayMap;
 import android.support.v4.view.AbsSavedState;
 import android.support.v4.view.GravityCompat;
+import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.ViewDragHelper;
 import android.util.AttributeSet;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 import static android.support.annotation.RestrictTo.Scope.LIBRARY_GROUP;
 
@@ -82,6 +88,99 @@ public final class DrawerBehavior extends CoordinatorLayout.Behavior<View> {
     void onDrawerStateChanged(View drawerView,@State int newState);
   }
 
+  /**
+   * Observer of conflated drawer state, called on the {@link Executor} it was registered with.
+   * It receives at most one snapshot per frame, and when it falls behind it receives only the
+   * latest state.
+   */
+  public interface DrawerStateObserver {
+    void onDrawerState(DrawerSnapshot snapshot);
+  }
+
+  @SuppressWarnings("WeakerAccess")
+  @RestrictTo(LIBRARY_GROUP)
+  @IntDef({
+      DrawerTracer.PHASE_INTERCEPT, DrawerTracer.PHASE_TOUCH, DrawerTracer.PHASE_POSITION,
+      DrawerTracer.PHASE_LAYOUT, DrawerTracer.PHASE_SETTLE
+  })
+  @Retention(RetentionPolicy.SOURCE)
+  public @interface Phase {}
+
+  /**
+   * Instrumentation hook which is notified around each unit of drawer work. Calls always come in
+   * balanced {@link #beginPhase} / {@link #endPhase} pairs on the main thread and may nest (a
+   * position change happens inside a touch or settle phase).
+   * <p>
+   * When no tracer is installed none of these calls are made, so implementations should not
+   * allocate or block: they run on every drag frame.
+   *
+   * @see SystraceDrawerTracer
+   */
+  public interface DrawerTracer {
+    /** Intercepting a touch event before the drawer owns the gesture. */
+    int PHASE_INTERCEPT = 0;
+    /** Handling a touch event for a gesture the drawer owns. */
+    int PHASE_TOUCH = 1;
+    /** Updating the scrim and listeners after the drawer moved. */
+    int PHASE_POSITION = 2;
+    /** Laying out the drawer inside its parent. */
+    int PHASE_LAYOUT = 3;
+    /** Advancing one frame of a settle animation. */
+    int PHASE_SETTLE = 4;
+
+    /**
+     * Called when a phase starts.
+     * @param drawerView The drawer doing the work
+     * @param phase One of the {@code PHASE_*} constants
+     */
+    void beginPhase(View drawerView, @Phase int phase);
+
+    /**
+     * Called when the phase most recently started for {@code drawerView} ends.
+     * @param drawerView The drawer doing the work
+     * @param phase One of the {@code PHASE_*} constants
+     */
+    void endPhase(View drawerView, @Phase int phase);
+  }
+
+  /**
+   * Decides which views are rendered into a hardware layer while a drawer is dragged or settling.
+   * Views are returned to {@link View#LAYER_TYPE_NONE} once the drawer is idle again. Views which
+   * already have a layer type are never touched.
+   * <p>
+   * Return {@code false} for a drawer whose contents animate on their own, since a hardware layer
+   * has to be re-rendered each time its contents change.
+   */
+  public interface LayerPolicy {
+    /**
+     * @param drawerView The drawer which started moving
+     * @param view Either {@code drawerView} itself or one of the content views in its parent
+     * @return true to promote {@code view} to a hardware layer until the drawer settles
+     */
+    boolean shouldPromote(View drawerView, View view);
+  }
+
+  /** Never promote any view. */
+  public static final LayerPolicy LAYER_POLICY_NONE = new LayerPolicy() {
+    @Override public boolean shouldPromote(View drawerView, View view) {
+      return false;
+    }
+  };
+
+  /** Promote only the moving drawer. This is the default. */
+  public static final LayerPolicy LAYER_POLICY_DRAWER = new LayerPolicy() {
+    @Override public boolean shouldPromote(View drawerView, View view) {
+      return view == drawerView;
+    }
+  };
+
+  /** Promote the moving drawer and the content views beneath it. */
+  public static final LayerPolicy LAYER_POLICY_DRAWER_AND_CONTENT = new LayerPolicy() {
+    @Override public boolean shouldPromote(View drawerView, View view) {
+      return true;
+    }
+  };
+
   private static void validateGravity(int gravity) {
     if (gravity != Gravity.LEFT
         && gravity != Gravity.RIGHT
@@ -91,11 +190,84 @@ public final class DrawerBehavior extends CoordinatorLayout.Behavior<View> {
     }
   }
 
-  private final SimpleArrayMap<View, BehaviorDelegate> delegates = new SimpleArrayMap<>();
+  /**
+   * Delegates of the attached drawers using this behavior. Each is also stored in a tag on its
+   * drawer view for lookup. A detached drawer is dropped from this list but keeps its delegate,
+   * and with it its state, until it is attached to the same parent again or found to have left it.
+   */
+  private final ArrayList<BehaviorDelegate> delegates = new ArrayList<>();
+  private final View.OnAttachStateChangeListener releaseOnDetach =
+      new View.OnAttachStateChangeListener() {
+        @Override public void onViewAttachedToWindow(View view) {
+          BehaviorDelegate delegate =
+              (BehaviorDelegate) view.getTag(R.id.drawer_behavior_delegate);
+          if (delegate == null || delegates.contains(delegate)) {
+            return;
+          }
+          if (delegate.hasParent(view.getParent())) {
+            configure(delegate);
+            delegates.add(delegate);
+            delegate.onReattached();
+          } else {
+            // Moved to another parent. Start over there from where the drawer was.
+            float offset = delegate.slideOffset();
+            release(view, delegate);
+            ViewParent parent = view.getParent();
+            ViewGroup.LayoutParams lp = view.getLayoutParams();
+            if (parent instanceof CoordinatorLayout
+                && ((CoordinatorLayout.LayoutParams) lp).getBehavior() == DrawerBehavior.this) {
+              delegate((CoordinatorLayout) parent, view)
+                  .restoreState(offset, ViewDragHelper.STATE_IDLE, offset == 1);
+            }
+          }
+        }
+
+        @Override public void onViewDetachedFromWindow(final View view) {
+          final BehaviorDelegate delegate =
+              (BehaviorDelegate) view.getTag(R.id.drawer_behavior_delegate);
+          if (delegate == null) {
+            return;
+          }
+          if (delegate.drawerView() != view) {
+            // A stub which was replaced by its layout has already handed its delegate over.
+            view.removeOnAttachStateChangeListener(this);
+            view.setTag(R.id.drawer_behavior_delegate, null);
+            return;
+          }
+          delegates.remove(delegate);
+          delegate.onDetached();
+          // Whether the drawer was removed from its parent or the whole hierarchy was detached is
+          // only known once the parent is done detaching, and nothing may be removed from it
+          // before then.
+          view.getHandler().post(new Runnable() {
+            @Override public void run() {
+              if (view.getTag(R.id.drawer_behavior_delegate) == delegate
+                  && !ViewCompat.isAttachedToWindow(view)
+                  && !delegate.hasParent(view.getParent())) {
+                release(view, delegate);
+              }
+            }
+          });
+        }
+      };
 
   private final int gravity;
 
+  private final DrawerListeners listeners = new DrawerListeners();
+  private final DrawerStatePublisher publisher = new DrawerStatePublisher();
   private DrawerListener listener;
+  private DrawerTracer tracer;
+  private LayerPolicy layerPolicy = LAYER_POLICY_DRAWER;
+  private boolean useTranslation;
+  private boolean propertyScrim;
+  private boolean shadowEnabled;
+  private float contentParallax;
+  private float contentScale = 1f;
+  private int touchPredictionMillis;
+  private DrawerGestureRecorder recorder;
+  private DrawerPerformanceMonitor monitor;
+  /** Negative for the drag helper's edge size. */
+  private int edgeRegionWidth = -1;
 
   @SuppressWarnings("unused") // Public API for programmatic instantiation.
   public DrawerBehavior(int gravity) {
@@ -115,20 +287,300 @@ public final class DrawerBehavior extends CoordinatorLayout.Behavior<View> {
     this.gravity = gravity;
   }
 
-  public void setDrawerListener(DrawerListener listener) {
+  /**
+   * Set a listener to be notified of drawer events. Replaces only the listener previously set
+   * through this method.
+   *
+   * @deprecated Use {@link #addDrawerListener(DrawerListener)} and
+   * {@link #removeDrawerListener(DrawerListener)}.
+   */
+  @Deprecated
+  public void setDrawerListener(@Nullable DrawerListener listener) {
+    if (this.listener != null) {
+      listeners.remove(this.listener);
+    }
+    if (listener != null) {
+      listeners.add(listener);
+    }
     this.listener = listener;
   }
 
+  /**
+   * Add a listener to be notified of drawer events. Adding the same listener twice has no effect.
+   * State changes are reported only when the state actually changes.
+   */
+  public void addDrawerListener(@NonNull DrawerListener listener) {
+    if (listener == null) {
+      throw new NullPointerException("listener == null");
+    }
+    listeners.add(listener);
+  }
+
+  /**
+   * Deliver snapshots of the drawer's offset, drag state, and open state to {@code observer} on
+   * {@code executor}. Snapshots are taken at most once per frame, and an observer which has not
+   * consumed the previous snapshot simply gets the newer one instead, so a slow observer never
+   * holds up the main thread. If several drawers share this behavior, their snapshots share the
+   * stream. Each snapshot is a new object, so while any observer is registered a moving drawer
+   * allocates one per frame.
+   */
+  public void addDrawerStateObserver(@NonNull Executor executor,
+      @NonNull DrawerStateObserver observer) {
+    if (executor == null) {
+      throw new NullPointerException("executor == null");
+    }
+    if (observer == null) {
+      throw new NullPointerException("observer == null");
+    }
+    publisher.add(executor, observer);
+  }
+
+  /**
+   * Stop delivering snapshots to {@code observer}. A snapshot already handed to its executor is
+   * dropped if it has not started running.
+   */
+  public void removeDrawerStateObserver(@NonNull DrawerStateObserver observer) {
+    publisher.remove(observer);
+  }
+
+  /** Remove a listener previously added with {@link #addDrawerListener(DrawerListener)}. */
+  public void removeDrawerListener(@NonNull DrawerListener listener) {
+    if (listener == null) {
+      throw new NullPointerException("listener == null");
+    }
+    listeners.remove(listener);
+  }
+
+  /**
+   * Install a tracer which is notified around intercept, touch, position, layout, and settle work
+   * for every drawer using this behavior. Pass {@code null} to remove it.
+   */
+  public void setDrawerTracer(@Nullable DrawerTracer tracer) {
+    this.tracer = tracer;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setTracer(tracer);
+    }
+  }
+
+  /**
+   * Set the width of the strip along the drawer's edge in which a gesture can start to pull the
+   * closed drawer, in pixels. While every drawer in the parent is closed and at rest, a gesture
+   * starting outside all of their strips is rejected with a single comparison and never reaches
+   * the drag helper. On Android 10 and newer the strips are also published as system gesture
+   * exclusion rects so that edge drags open the drawer rather than going back. Defaults to, and
+   * is capped at, the drag helper's edge size of 20dp. Use 0 to only open the drawer from code.
+   */
+  public void setEdgeRegionWidth(@Px int width) {
+    if (width < 0) {
+      throw new IllegalArgumentException("width < 0: " + width);
+    }
+    this.edgeRegionWidth = width;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setEdgeRegionWidth(width);
+    }
+  }
+
+  /**
+   * Measure every drawer gesture and report it to {@code monitor}. Pass null to stop measuring.
+   */
+  public void setPerformanceMonitor(@Nullable DrawerPerformanceMonitor monitor) {
+    this.monitor = monitor;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setPerformanceMonitor(monitor);
+    }
+  }
+
+  /**
+   * Record every touch event offered to the drawer, including those rejected without any work,
+   * into {@code recorder}. Pass null to stop recording.
+   */
+  public void setGestureRecorder(@Nullable DrawerGestureRecorder recorder) {
+    this.recorder = recorder;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setGestureRecorder(recorder);
+    }
+  }
+
+  /**
+   * Set which views are promoted to a hardware layer while the drawer moves. Defaults to
+   * {@link #LAYER_POLICY_DRAWER}.
+   */
+  public void setLayerPolicy(@NonNull LayerPolicy layerPolicy) {
+    if (layerPolicy == null) {
+      throw new NullPointerException("layerPolicy == null");
+    }
+    this.layerPolicy = layerPolicy;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setLayerPolicy(layerPolicy);
+    }
+  }
+
+  /**
+   * When enabled the drawer is always laid out at its open position and moved only through its
+   * {@linkplain View#setTranslationX(float) translation}. Drags and settles then never depend on
+   * layout, and a relayout of the content cannot move the drawer mid-gesture. Disabled by default.
+   */
+  public void setTranslationPositioningEnabled(boolean enabled) {
+    this.useTranslation = enabled;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setUseTranslation(enabled);
+    }
+  }
+
+  /**
+   * When enabled the scrim over the content is drawn once and then faded and moved only through
+   * its alpha and translation, so drag frames never redraw it. This adds a view to the parent for
+   * each drawer. Disabled by default.
+   * <p>
+   * Only affects drawers which have not yet been laid out or touched.
+   */
+  public void setPropertyScrimEnabled(boolean enabled) {
+    this.propertyScrim = enabled;
+  }
+
+  /**
+   * Draw the drawer where the finger is expected to be {@code millis} ahead of the latest touch
+   * sample while it is dragged, to hide some of the input-to-display latency. The prediction is
+   * extrapolated from every sample of the recent events, including the historical samples batched
+   * into them, and never leads the finger by more than 24dp. A lead of around one frame works
+   * well. 0 disables prediction, which is the default.
+   */
+  public void setTouchPredictionMillis(int millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("millis < 0: " + millis);
+    }
+    this.touchPredictionMillis = millis;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setTouchPredictionMillis(millis);
+    }
+  }
+
+  /**
+   * Draw a shadow along the drawer's edge over the content, like {@code DrawerLayout}. The
+   * gradient is rendered once per density and side and then only moved with the drawer, so its
+   * per-frame cost does not depend on the drawer's size. Disabled by default.
+   */
+  public void setDrawerShadowEnabled(boolean enabled) {
+    this.shadowEnabled = enabled;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setShadowEnabled(enabled);
+    }
+  }
+
+  /**
+   * Move the content views along with the drawer. The effect is applied only through each content
+   * view's translation and scale in the same frame the drawer moves, so the content is never laid
+   * out for it.
+   *
+   * @param parallax Fraction of the drawer's travel the content follows: 0 leaves it in place
+   * (the default), 1 pushes it along with the drawer, and values in between reveal the drawer
+   * with a parallax
+   * @param scale Scale of the content when the drawer is fully open, 1 for none (the default)
+   */
+  public void setContentEffect(float parallax, float scale) {
+    this.contentParallax = parallax;
+    this.contentScale = scale;
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      delegates.get(i).setContentEffect(parallax, scale);
+    }
+  }
+
+  /** Animate {@code drawerView} to its open position. */
+  public void openDrawer(@NonNull View drawerView) {
+    openDrawer(drawerView, true);
+  }
+
+  /**
+   * Move {@code drawerView} to its open position. When animated, the drawer springs open from
+   * wherever it is. Calling this while the drawer is being dragged takes it from the finger,
+   * keeping the finger's velocity, and the rest of that gesture is ignored. Calling it while the
+   * drawer is already settling retargets the settle without losing its velocity.
+   */
+  public void openDrawer(@NonNull View drawerView, boolean animate) {
+    delegate(drawerView).setDrawerOpen(true, animate);
+  }
+
+  /** Animate {@code drawerView} to its closed position. */
+  public void closeDrawer(@NonNull View drawerView) {
+    closeDrawer(drawerView, true);
+  }
+
+  /**
+   * Move {@code drawerView} to its closed position. When animated, the drawer springs closed from
+   * wherever it is. Calling this while the drawer is being dragged takes it from the finger,
+   * keeping the finger's velocity, and the rest of that gesture is ignored. Calling it while the
+   * drawer is already settling retargets the settle without losing its velocity.
+   */
+  public void closeDrawer(@NonNull View drawerView, boolean animate) {
+    delegate(drawerView).setDrawerOpen(false, animate);
+  }
+
+  /** Returns true if {@code drawerView} has settled open or is opening. */
+  public boolean isDrawerOpen(@NonNull View drawerView) {
+    return delegate(drawerView).isDrawerOpen();
+  }
+
+  private BehaviorDelegate delegate(View child) {
+    ViewParent parent = child.getParent();
+    if (!(parent instanceof CoordinatorLayout)) {
+      throw new IllegalArgumentException("The view is not a child of CoordinatorLayout");
+    }
+    return delegate((CoordinatorLayout) parent, child);
+  }
+
+  /**
+   * Find the delegate which was created for a {@link android.view.ViewStub} that has since been
+   * replaced by {@code child}.
+   */
+  @Nullable private BehaviorDelegate inflatedDelegate(View child) {
+    for (int i = 0, size = delegates.size(); i < size; i++) {
+      BehaviorDelegate delegate = delegates.get(i);
+      if (delegate.drawerView() == child) {
+        return delegate;
+      }
+    }
+    return null;
+  }
+
   private BehaviorDelegate delegate(CoordinatorLayout parent, View child) {
-    BehaviorDelegate delegate = delegates.get(child);
+    BehaviorDelegate delegate = (BehaviorDelegate) child.getTag(R.id.drawer_behavior_delegate);
+    if (delegate != null) {
+      return delegate;
+    }
+    delegate = inflatedDelegate(child);
     if (delegate == null) {
-      delegate = new BehaviorDelegate(parent, child, gravity);
-      delegate.setDrawListener(listener);
-      delegates.put(child, delegate);
+      delegate =
+          new BehaviorDelegate(parent, child, gravity, propertyScrim, listeners, publisher);
+      configure(delegate);
+      delegates.add(delegate);
     }
+    child.setTag(R.id.drawer_behavior_delegate, delegate);
+    child.addOnAttachStateChangeListener(releaseOnDetach);
     return delegate;
   }
 
+  /** Bring {@code delegate} in line with this behavior's settings. */
+  private void configure(BehaviorDelegate delegate) {
+    delegate.setTracer(tracer);
+    delegate.setLayerPolicy(layerPolicy);
+    delegate.setUseTranslation(useTranslation);
+    delegate.setShadowEnabled(shadowEnabled);
+    delegate.setContentEffect(contentParallax, contentScale);
+    delegate.setTouchPredictionMillis(touchPredictionMillis);
+    delegate.setGestureRecorder(recorder);
+    delegate.setPerformanceMonitor(monitor);
+    if (edgeRegionWidth >= 0) {
+      delegate.setEdgeRegionWidth(edgeRegionWidth);
+    }
+  }
+
+  /** Drop the delegate of a drawer which left the parent it was created for. */
+  private void release(View child, BehaviorDelegate delegate) {
+    child.removeOnAttachStateChangeListener(releaseOnDetach);
+    child.setTag(R.id.drawer_behavior_delegate, null);
+    delegate.release();
+  }
+
   @Override
   public boolean onLayoutChild(CoordinatorLayout parent, View child, int layoutDirection) {
     return child.getVisibility() == View.GONE //
@@ -144,24 +596,69 @@ public final class DrawerBehavior extends CoordinatorLayout.Behavior<View> {
     return delegate(parent, child).onTouchEvent(ev);
   }
 
+  @Override
+  public boolean onStartNestedScroll(@NonNull CoordinatorLayout parent, @NonNull View child,
+      @NonNull View directTargetChild, @NonNull View target, int axes, int type) {
+    return child.getVisibility() != View.GONE
+        && delegate(parent, child).onStartNestedScroll(axes, type);
+  }
+
+  @Override
+  public void onNestedPreScroll(@NonNull CoordinatorLayout parent, @NonNull View child,
+      @NonNull View target, int dx, int dy, @NonNull int[] consumed, int type) {
+    delegate(parent, child).onNestedPreScroll(dx, consumed);
+  }
+
+  @Override
+  public void onNestedScroll(@NonNull CoordinatorLayout parent, @NonNull View child,
+      @NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+      int type) {
+    delegate(parent, child).onNestedScroll(dxUnconsumed);
+  }
+
+  @Override
+  public boolean onNestedPreFling(@NonNull CoordinatorLayout parent, @NonNull View child,
+      @NonNull View target, float velocityX, float velocityY) {
+    return delegate(parent, child).onNestedPreFling(velocityX);
+  }
+
+  @Override
+  public void onStopNestedScroll(@NonNull CoordinatorLayout parent, @NonNull View child,
+      @NonNull View target, int type) {
+    delegate(parent, child).onStopNestedScroll();
+  }
+
   @Override
   public Parcelable onSaveInstanceState(CoordinatorLayout parent, View child) {
-    return new SavedState(super.onSaveInstanceState(parent, child),delegates.get(child).isDrawerOpen()) ;
+    Parcelable superState = super.onSaveInstanceState(parent, child);
+    BehaviorDelegate delegate = (BehaviorDelegate) child.getTag(R.id.drawer_behavior_delegate);
+    if (delegate == null) {
+      // Never laid out or touched, so still closed.
+      return new SavedState(superState, 0f, ViewDragHelper.STATE_IDLE, false);
+    }
+    return new SavedState(superState, delegate.slideOffset(), delegate.dragState(),
+        delegate.isHeadingOpen());
   }
 
   @Override
   public void onRestoreInstanceState(CoordinatorLayout parent, View child, Parcelable state) {
     SavedState ss = (SavedState) state;
     super.onRestoreInstanceState(parent, child, ss.getSuperState());
-    delegates.get(child).setDrawerState(ss.openState?BehaviorDelegate.FLAG_IS_OPENED:BehaviorDelegate.FLAG_IS_CLOSED);
+    delegate(parent, child).restoreState(ss.offset, ss.dragState, ss.openState);
   }
 
   private static class SavedState extends AbsSavedState {
 
+    float offset;
+    @State int dragState;
+    /** Whether the drawer was open or heading there. */
     boolean openState;
 
-    private SavedState(Parcelable superState,boolean openState) {
+    private SavedState(Parcelable superState, float offset, @State int dragState,
+        boolean openState) {
       super(superState);
+      this.offset = offset;
+      this.dragState = dragState;
       this.openState = openState;
     }
 
@@ -171,12 +668,17 @@ public final class DrawerBehavior extends CoordinatorLayout.Behavior<View> {
 
     private SavedState(Parcel source, ClassLoader loader) {
       super(source, loader);
+      offset = source.readFloat();
+      //noinspection WrongConstant
+      dragState = source.readInt();
       openState = source.readInt() != 0;
     }
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
       super.writeToParcel(dest, flags);
+      dest.writeFloat(offset);
+      dest.writeInt(dragState);
       dest.writeInt(openState?1:0);
     }
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.os.Debug;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.design.widget.CoordinatorLayout;
+import android.view.MotionEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the touch events offered to drawers so a gesture seen in the field can be replayed
+ * later. Events are copied in the parent's coordinates, and since {@link MotionEvent} is
+ * {@link android.os.Parcelable} a recording can be written out and read back elsewhere.
+ * <p>
+ * Install with {@link DrawerBehavior#setGestureRecorder}. Each event is recorded once, however many
+ * drawers are offered it. The cancels {@link CoordinatorLayout} makes up to reset its behaviors are
+ * left out. Pair a replay with a {@link DrawerBehavior.DrawerTracer} to count settle frames and
+ * with {@link DrawerBehavior#addDrawerStateObserver} to check where the drawer ends up.
+ */
+public final class DrawerGestureRecorder {
+  private final int capacity;
+  private final ArrayList<MotionEvent> events = new ArrayList<>();
+  @Nullable private MotionEvent lastEvent;
+  private long lastEventTime;
+  private int lastAction;
+
+  /** @param capacity The most events to keep. Later events are dropped. */
+  public DrawerGestureRecorder(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity <= 0: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  void record(MotionEvent ev) {
+    int action = ev.getActionMasked();
+    if (ev == lastEvent && ev.getEventTime() == lastEventTime && action == lastAction) {
+      return; // Offered to another drawer or hook for the same dispatch.
+    }
+    lastEvent = ev;
+    lastEventTime = ev.getEventTime();
+    lastAction = action;
+    if (isSyntheticCancel(ev)) {
+      return;
+    }
+    if (events.size() < capacity) {
+      events.add(MotionEvent.obtain(ev));
+    }
+  }
+
+  /**
+   * CoordinatorLayout resets behaviors which do not own the gesture with a cancel it makes up on
+   * the spot: one pointer at 0,0 which went down when the cancel happened. Replayed, it would
+   * cancel the real gesture.
+   */
+  private static boolean isSyntheticCancel(MotionEvent ev) {
+    return ev.getActionMasked() == MotionEvent.ACTION_CANCEL
+        && ev.getPointerCount() == 1
+        && ev.getX() == 0
+        && ev.getY() == 0
+        && ev.getDownTime() == ev.getEventTime();
+  }
+
+  /** The recorded events in the order they were dispatched. Owned by this recorder. */
+  @NonNull public List<MotionEvent> getEvents() {
+    return Collections.unmodifiableList(events);
+  }
+
+  /** Discard and recycle every recorded event. */
+  public void clear() {
+    for (int i = 0, size = events.size(); i < size; i++) {
+      events.get(i).recycle();
+    }
+    events.clear();
+    lastEvent = null;
+  }
+
+  /**
+   * Dispatch {@code events} to {@code parent} back to back on the calling thread, which must be
+   * the main thread. Nothing is drawn between events, so this measures the cost of handling input,
+   * not frames. Settles started by the replay run afterwards as usual.
+   *
+   * @return The thread CPU time spent dispatching each event, in nanoseconds
+   */
+  @NonNull
+  public static long[] replay(@NonNull CoordinatorLayout parent,
+      @NonNull List<MotionEvent> events) {
+    long[] cpuTimes = new long[events.size()];
+    for (int i = 0, size = events.size(); i < size; i++) {
+      MotionEvent event = MotionEvent.obtain(events.get(i));
+      long start = Debug.threadCpuTimeNanos();
+      parent.dispatchTouchEvent(event);
+      cpuTimes[i] = Debug.threadCpuTimeNanos() - start;
+      event.recycle();
+    }
+    return cpuTimes;
+  }
+}
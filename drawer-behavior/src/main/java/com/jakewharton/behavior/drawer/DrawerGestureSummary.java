@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+/**
+ * Frame and timing measurements for one drawer gesture.
+ *
+ * @see DrawerPerformanceMonitor
+ */
+public final class DrawerGestureSummary {
+  private final long durationMillis;
+  private final int frameCount;
+  private final int jankyFrameCount;
+  private final int missedVsyncCount;
+  private final long maxFrameNanos;
+  private final long settleMillis;
+  private final long touchToFirstMoveMillis;
+  private final boolean open;
+
+  DrawerGestureSummary(long durationMillis, int frameCount, int jankyFrameCount,
+      int missedVsyncCount, long maxFrameNanos, long settleMillis, long touchToFirstMoveMillis,
+      boolean open) {
+    this.durationMillis = durationMillis;
+    this.frameCount = frameCount;
+    this.jankyFrameCount = jankyFrameCount;
+    this.missedVsyncCount = missedVsyncCount;
+    this.maxFrameNanos = maxFrameNanos;
+    this.settleMillis = settleMillis;
+    this.touchToFirstMoveMillis = touchToFirstMoveMillis;
+    this.open = open;
+  }
+
+  /** Time from the start of the gesture until the drawer came to rest. */
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /** The number of frames measured during the gesture. */
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  /** The number of frames which took longer than one refresh period. */
+  public int getJankyFrameCount() {
+    return jankyFrameCount;
+  }
+
+  /** The total number of refresh periods in which no frame was produced. */
+  public int getMissedVsyncCount() {
+    return missedVsyncCount;
+  }
+
+  /** The longest time between two consecutive frames. */
+  public long getMaxFrameNanos() {
+    return maxFrameNanos;
+  }
+
+  /** Time from releasing the drawer until it came to rest, or 0 if it did not settle. */
+  public long getSettleMillis() {
+    return settleMillis;
+  }
+
+  /**
+   * Time from the down event which started the gesture until the drawer first moved, or -1 if it
+   * was not started by a touch or never moved.
+   */
+  public long getTouchToFirstMoveMillis() {
+    return touchToFirstMoveMillis;
+  }
+
+  /** True if the drawer came to rest open. */
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override public String toString() {
+    return "DrawerGestureSummary{durationMillis=" + durationMillis
+        + ", frameCount=" + frameCount
+        + ", jankyFrameCount=" + jankyFrameCount
+        + ", missedVsyncCount=" + missedVsyncCount
+        + ", maxFrameNanos=" + maxFrameNanos
+        + ", settleMillis=" + settleMillis
+        + ", touchToFirstMoveMillis=" + touchToFirstMoveMillis
+        + ", open=" + open
+        + '}';
+  }
+}
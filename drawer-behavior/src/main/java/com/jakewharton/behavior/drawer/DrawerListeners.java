@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.view.View;
+
+import static com.jakewharton.behavior.drawer.DrawerBehavior.DrawerListener;
+import static com.jakewharton.behavior.drawer.DrawerBehavior.State;
+
+/**
+ * The listeners of one behavior, shared by all of its delegates. Registration copies the array
+ * so that dispatch can iterate a snapshot without allocating, even if a listener adds or removes
+ * listeners from inside a callback.
+ */
+final class DrawerListeners {
+  private static final DrawerListener[] NO_LISTENERS = new DrawerListener[0];
+
+  private DrawerListener[] listeners = NO_LISTENERS;
+
+  void add(DrawerListener listener) {
+    DrawerListener[] listeners = this.listeners;
+    for (DrawerListener existing : listeners) {
+      if (existing == listener) {
+        return;
+      }
+    }
+    DrawerListener[] newListeners = new DrawerListener[listeners.length + 1];
+    System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+    newListeners[listeners.length] = listener;
+    this.listeners = newListeners;
+  }
+
+  void remove(DrawerListener listener) {
+    DrawerListener[] listeners = this.listeners;
+    for (int i = 0; i < listeners.length; i++) {
+      if (listeners[i] == listener) {
+        if (listeners.length == 1) {
+          this.listeners = NO_LISTENERS;
+          return;
+        }
+        DrawerListener[] newListeners = new DrawerListener[listeners.length - 1];
+        System.arraycopy(listeners, 0, newListeners, 0, i);
+        System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+        this.listeners = newListeners;
+        return;
+      }
+    }
+  }
+
+  void dispatchSlide(View drawerView, float slideOffset) {
+    for (DrawerListener listener : listeners) {
+      listener.onDrawerSlide(drawerView, slideOffset);
+    }
+  }
+
+  void dispatchOpened(View drawerView) {
+    for (DrawerListener listener : listeners) {
+      listener.onDrawerOpened(drawerView);
+    }
+  }
+
+  void dispatchClosed(View drawerView) {
+    for (DrawerListener listener : listeners) {
+      listener.onDrawerClosed(drawerView);
+    }
+  }
+
+  void dispatchStateChanged(View drawerView, @State int newState) {
+    for (DrawerListener listener : listeners) {
+      listener.onDrawerStateChanged(drawerView, newState);
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.support.annotation.NonNull;
+import android.view.View;
+
+/**
+ * Measures each drawer gesture, from the edge touch or capture which starts it until the drawer
+ * comes to rest, and reports it as a {@link DrawerGestureSummary}. Open and close animations
+ * started from code are reported the same way without a touch latency.
+ * <p>
+ * Install with {@link DrawerBehavior#setPerformanceMonitor}. One monitor can be shared by any
+ * number of drawers. Frames are only measured on API 16 and newer.
+ */
+public final class DrawerPerformanceMonitor {
+  /** Receives a summary on the main thread each time a drawer comes to rest. */
+  public interface Listener {
+    void onGestureMeasured(View drawerView, DrawerGestureSummary summary);
+  }
+
+  private final Listener listener;
+
+  public DrawerPerformanceMonitor(@NonNull Listener listener) {
+    if (listener == null) {
+      throw new NullPointerException("listener == null");
+    }
+    this.listener = listener;
+  }
+
+  void deliver(View drawerView, DrawerGestureSummary summary) {
+    listener.onGestureMeasured(drawerView, summary);
+  }
+}
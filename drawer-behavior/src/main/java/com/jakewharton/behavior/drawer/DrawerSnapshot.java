@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import static com.jakewharton.behavior.drawer.DrawerBehavior.State;
+
+/**
+ * An immutable snapshot of a drawer's state, taken at most once per frame. Safe to read from any
+ * thread.
+ *
+ * @see DrawerBehavior#addDrawerStateObserver
+ */
+public final class DrawerSnapshot {
+  private final float slideOffset;
+  @State private final int dragState;
+  private final boolean open;
+  private final long frameTimeMillis;
+
+  DrawerSnapshot(float slideOffset, @State int dragState, boolean open, long frameTimeMillis) {
+    this.slideOffset = slideOffset;
+    this.dragState = dragState;
+    this.open = open;
+    this.frameTimeMillis = frameTimeMillis;
+  }
+
+  /** How open the drawer is, from 0-1. */
+  public float getSlideOffset() {
+    return slideOffset;
+  }
+
+  /**
+   * The drawer motion state, one of {@link android.support.v4.widget.ViewDragHelper#STATE_IDLE},
+   * {@link android.support.v4.widget.ViewDragHelper#STATE_DRAGGING} or
+   * {@link android.support.v4.widget.ViewDragHelper#STATE_SETTLING}.
+   */
+  @State public int getDragState() {
+    return dragState;
+  }
+
+  /** True if the drawer has settled open or is opening. */
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * The animation time of the frame this snapshot was taken in, in the
+   * {@link android.os.SystemClock#uptimeMillis()} time base.
+   */
+  public long getFrameTimeMillis() {
+    return frameTimeMillis;
+  }
+
+  @Override public String toString() {
+    return "DrawerSnapshot{slideOffset=" + slideOffset
+        + ", dragState=" + dragState
+        + ", open=" + open
+        + ", frameTimeMillis=" + frameTimeMillis
+        + '}';
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.jakewharton.behavior.drawer.DrawerBehavior.DrawerStateObserver;
+
+/**
+ * Hands drawer snapshots to observers on their own executors. Each observer holds only the latest
+ * snapshot it has not yet seen and has at most one task queued, so a slow observer skips
+ * intermediate states instead of queueing work behind the UI thread.
+ */
+final class DrawerStatePublisher {
+  private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+  // Registration and publishing happen on the main thread.
+  private Subscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+  boolean hasObservers() {
+    return subscriptions.length != 0;
+  }
+
+  void add(Executor executor, DrawerStateObserver observer) {
+    Subscription[] subscriptions = this.subscriptions;
+    Subscription[] newSubscriptions = new Subscription[subscriptions.length + 1];
+    System.arraycopy(subscriptions, 0, newSubscriptions, 0, subscriptions.length);
+    newSubscriptions[subscriptions.length] = new Subscription(executor, observer);
+    this.subscriptions = newSubscriptions;
+  }
+
+  void remove(DrawerStateObserver observer) {
+    Subscription[] subscriptions = this.subscriptions;
+    for (int i = 0; i < subscriptions.length; i++) {
+      if (subscriptions[i].observer == observer) {
+        subscriptions[i].cancelled = true;
+        Subscription[] newSubscriptions = new Subscription[subscriptions.length - 1];
+        System.arraycopy(subscriptions, 0, newSubscriptions, 0, i);
+        System.arraycopy(subscriptions, i + 1, newSubscriptions, i, subscriptions.length - i - 1);
+        this.subscriptions = newSubscriptions;
+        return;
+      }
+    }
+  }
+
+  void publish(DrawerSnapshot snapshot) {
+    for (Subscription subscription : subscriptions) {
+      subscription.offer(snapshot);
+    }
+  }
+
+  private static final class Subscription implements Runnable {
+    final Executor executor;
+    final DrawerStateObserver observer;
+    final AtomicReference<DrawerSnapshot> latest = new AtomicReference<>();
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    volatile boolean cancelled;
+
+    Subscription(Executor executor, DrawerStateObserver observer) {
+      this.executor = executor;
+      this.observer = observer;
+    }
+
+    void offer(DrawerSnapshot snapshot) {
+      latest.set(snapshot);
+      if (scheduled.compareAndSet(false, true)) {
+        executor.execute(this);
+      }
+    }
+
+    @Override public void run() {
+      // Keep draining while snapshots arrive, but never let two runs overlap.
+      do {
+        DrawerSnapshot snapshot = latest.getAndSet(null);
+        if (snapshot != null && !cancelled) {
+          observer.onDrawerState(snapshot);
+        }
+        scheduled.set(false);
+      } while (latest.get() != null && scheduled.compareAndSet(false, true));
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.annotation.SuppressLint;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.design.widget.CoordinatorLayout.LayoutParams;
+import android.support.v4.view.ViewCompat;
+import android.util.SparseArray;
+import android.view.View;
+
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+
+/**
+ * A shadow cast by the drawer onto the content. The gradient is rendered once per width and
+ * side into a one pixel tall bitmap which is stretched to the parent's height, and the view is
+ * only ever translated and faded afterwards.
+ */
+@SuppressLint("ViewConstructor") // Created only programmatically.
+final class EdgeShadow extends View {
+  private static final int SHADOW_WIDTH = 10; // dp
+  private static final int SHADOW_ALPHA = 0x55;
+
+  /** Keyed by width in pixels shifted left once, with the low bit set for a left drawer. */
+  private static final SparseArray<Bitmap> BITMAPS = new SparseArray<>();
+
+  private static Bitmap shadowBitmap(int width, boolean isLeft) {
+    int key = width << 1 | (isLeft ? 1 : 0);
+    Bitmap bitmap = BITMAPS.get(key);
+    if (bitmap == null) {
+      bitmap = Bitmap.createBitmap(width, 1, Bitmap.Config.ARGB_8888);
+      for (int i = 0; i < width; i++) {
+        // Darkest against the drawer, easing out towards the content.
+        float remaining = 1f - (float) i / width;
+        int alpha = (int) (SHADOW_ALPHA * remaining * remaining);
+        bitmap.setPixel(isLeft ? i : width - 1 - i, 0, alpha << 24);
+      }
+      BITMAPS.put(key, bitmap);
+    }
+    return bitmap;
+  }
+
+  private final boolean isLeft;
+  private final int shadowWidth;
+  private boolean visible;
+
+  EdgeShadow(CoordinatorLayout parent, View child, boolean isLeft) {
+    super(parent.getContext());
+    this.isLeft = isLeft;
+    float density = getResources().getDisplayMetrics().density;
+    shadowWidth = Math.max(1, (int) (SHADOW_WIDTH * density + 0.5f));
+
+    ViewCompat.setBackground(this,
+        new BitmapDrawable(getResources(), shadowBitmap(shadowWidth, isLeft)));
+    ViewCompat.setImportantForAccessibility(this, ViewCompat.IMPORTANT_FOR_ACCESSIBILITY_NO);
+    setAlpha(0);
+    setVisibility(INVISIBLE);
+    // Draw directly beneath the drawer.
+    parent.addView(this, parent.indexOfChild(child), new LayoutParams(shadowWidth, MATCH_PARENT));
+  }
+
+  @Override public boolean hasOverlappingRendering() {
+    return false;
+  }
+
+  /**
+   * @param drawerEdge The x coordinate of the drawer's edge facing the content
+   * @param showing How many pixels of the drawer are on screen
+   */
+  void update(int drawerEdge, int showing) {
+    setTranslationX(isLeft ? drawerEdge : drawerEdge - shadowWidth);
+    // Fade in over the first shadow width of travel, like DrawerLayout.
+    setAlpha(Math.max(0f, Math.min((float) showing / shadowWidth, 1f)));
+    boolean visible = showing > 0;
+    if (this.visible != visible) {
+      setVisibility(visible ? VISIBLE : INVISIBLE);
+      this.visible = visible;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.graphics.Rect;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Calls {@code View.setSystemGestureExclusionRects}, which was added in API 29, through a cached
+ * reflective lookup since the library compiles against an older SDK.
+ */
+final class GestureExclusion {
+  @Nullable private static Method setRectsMethod;
+  private static boolean setRectsMethodFetched;
+
+  static void setRects(View view, List<Rect> rects) {
+    if (!setRectsMethodFetched) {
+      try {
+        setRectsMethod = View.class.getMethod("setSystemGestureExclusionRects", List.class);
+      } catch (NoSuchMethodException ignored) {
+      }
+      setRectsMethodFetched = true;
+    }
+    if (setRectsMethod != null) {
+      try {
+        setRectsMethod.invoke(view, rects);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        // Never thrown for a public method which does not throw. Stop trying regardless.
+        setRectsMethod = null;
+      }
+    }
+  }
+
+  private GestureExclusion() {
+    throw new AssertionError("No instances.");
+  }
+}
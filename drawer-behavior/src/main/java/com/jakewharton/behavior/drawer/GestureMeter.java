@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+
+/**
+ * Accumulates one drawer's measurements for the gesture in progress and hands them to a
+ * {@link DrawerPerformanceMonitor} when the drawer comes to rest. Frame intervals come from
+ * {@link Choreographer} callbacks, which are only posted while a gesture is active.
+ */
+final class GestureMeter {
+  private static final float DEFAULT_REFRESH_RATE = 60f;
+
+  private final DrawerPerformanceMonitor monitor;
+  @Nullable private final FrameCounter frameCounter;
+
+  private boolean active;
+  private long startTime;
+  private long downTime;
+  private long firstMoveTime;
+  private long settleStartTime;
+  private long refreshPeriodNanos;
+
+  private long lastFrameNanos;
+  private int frameCount;
+  private int jankyFrameCount;
+  private int missedVsyncCount;
+  private long maxFrameNanos;
+
+  GestureMeter(DrawerPerformanceMonitor monitor) {
+    this.monitor = monitor;
+    frameCounter = Build.VERSION.SDK_INT >= 16 ? new FrameCounter() : null;
+  }
+
+  /**
+   * Start measuring a gesture unless one is already in progress.
+   *
+   * @param downTime Uptime of the down event which started it, or -1 if it was not a touch
+   */
+  void start(View drawerView, long downTime) {
+    if (active) {
+      return;
+    }
+    active = true;
+    startTime = SystemClock.uptimeMillis();
+    this.downTime = downTime;
+    firstMoveTime = -1;
+    settleStartTime = -1;
+    lastFrameNanos = 0;
+    frameCount = 0;
+    jankyFrameCount = 0;
+    missedVsyncCount = 0;
+    maxFrameNanos = 0;
+
+    Display display = ViewCompat.getDisplay(drawerView);
+    float refreshRate = display != null ? display.getRefreshRate() : 0;
+    if (refreshRate < 1) {
+      refreshRate = DEFAULT_REFRESH_RATE;
+    }
+    refreshPeriodNanos = (long) (1000000000 / refreshRate);
+
+    if (frameCounter != null) {
+      frameCounter.start();
+    }
+  }
+
+  void moved() {
+    if (active && firstMoveTime < 0) {
+      firstMoveTime = SystemClock.uptimeMillis();
+    }
+  }
+
+  /** The drawer was released, or started animating from code. */
+  void settling(View drawerView) {
+    start(drawerView, -1);
+    if (settleStartTime < 0) {
+      settleStartTime = SystemClock.uptimeMillis();
+    }
+  }
+
+  /** The drawer came to rest. Report the gesture, if one was being measured. */
+  void end(View drawerView, boolean open) {
+    if (!active) {
+      return;
+    }
+    active = false;
+    if (frameCounter != null) {
+      frameCounter.stop();
+    }
+    long now = SystemClock.uptimeMillis();
+    long touchToFirstMove = downTime >= 0 && firstMoveTime >= 0 ? firstMoveTime - downTime : -1;
+    long settle = settleStartTime >= 0 ? now - settleStartTime : 0;
+    monitor.deliver(drawerView, new DrawerGestureSummary(now - startTime, frameCount,
+        jankyFrameCount, missedVsyncCount, maxFrameNanos, settle, touchToFirstMove, open));
+  }
+
+  /** Stop measuring without reporting. */
+  void cancel() {
+    active = false;
+    if (frameCounter != null) {
+      frameCounter.stop();
+    }
+  }
+
+  void frame(long frameTimeNanos) {
+    long lastFrameNanos = this.lastFrameNanos;
+    this.lastFrameNanos = frameTimeNanos;
+    if (lastFrameNanos == 0) {
+      return; // Nothing to measure the first frame against.
+    }
+    long interval = frameTimeNanos - lastFrameNanos;
+    frameCount++;
+    maxFrameNanos = Math.max(maxFrameNanos, interval);
+    int missed = Math.round((float) interval / refreshPeriodNanos) - 1;
+    if (missed > 0) {
+      jankyFrameCount++;
+      missedVsyncCount += missed;
+    }
+  }
+
+  /** Kept separate so that {@link Choreographer} is only loaded where it exists. */
+  @TargetApi(16)
+  private final class FrameCounter implements Choreographer.FrameCallback {
+    void start() {
+      Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    void stop() {
+      Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override public void doFrame(long frameTimeNanos) {
+      frame(frameTimeNanos);
+      if (active) {
+        Choreographer.getInstance().postFrameCallback(this);
+      }
+    }
+  }
+}
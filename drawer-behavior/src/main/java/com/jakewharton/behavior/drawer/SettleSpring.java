@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+/**
+ * A critically damped spring which moves a position towards a target. Each step is solved
+ * exactly for the elapsed time, so uneven frame times do not change the path, and the target can
+ * be replaced at any point without losing the current velocity.
+ */
+final class SettleSpring {
+  /** Natural frequency in radians per second. Higher values settle faster. */
+  private static final float OMEGA = 28f;
+  private static final float REST_DISPLACEMENT = 0.5f; // px
+  private static final float REST_VELOCITY = 40f; // dips per second
+
+  private final float restVelocity;
+
+  private float position;
+  private float velocity;
+  private float target;
+  private boolean running;
+
+  SettleSpring(float density) {
+    restVelocity = REST_VELOCITY * density;
+  }
+
+  boolean isRunning() {
+    return running;
+  }
+
+  float position() {
+    return position;
+  }
+
+  float target() {
+    return target;
+  }
+
+  /** In pixels per second. */
+  float velocity() {
+    return velocity;
+  }
+
+  void start(float position, float velocity, float target) {
+    this.position = position;
+    this.velocity = velocity;
+    this.target = target;
+    running = true;
+  }
+
+  void stop() {
+    velocity = 0;
+    running = false;
+  }
+
+  /**
+   * Advance the spring by {@code seconds}. Returns false once it has come to rest on the target.
+   */
+  boolean step(float seconds) {
+    // x(t) = (x0 + (v0 + w * x0) * t) * e^(-w * t) for displacement x from the target.
+    float x = position - target;
+    float c = velocity + OMEGA * x;
+    float decay = (float) Math.exp(-OMEGA * seconds);
+    float displacement = (x + c * seconds) * decay;
+    velocity = (c - OMEGA * (x + c * seconds)) * decay;
+    position = target + displacement;
+
+    if (Math.abs(displacement) < REST_DISPLACEMENT && Math.abs(velocity) < restVelocity) {
+      position = target;
+      velocity = 0;
+      running = false;
+    }
+    return running;
+  }
+}
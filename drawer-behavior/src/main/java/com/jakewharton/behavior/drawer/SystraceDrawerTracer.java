@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.support.annotation.Nullable;
+import android.support.v4.os.TraceCompat;
+import android.view.View;
+
+import static com.jakewharton.behavior.drawer.DrawerBehavior.DrawerTracer;
+import static com.jakewharton.behavior.drawer.DrawerBehavior.Phase;
+
+/**
+ * A {@link DrawerTracer} which emits a systrace/Perfetto section for each phase and then forwards
+ * the call to an optional sink.
+ */
+public final class SystraceDrawerTracer implements DrawerTracer {
+  private static final String[] SECTION_NAMES = {
+      "DrawerBehavior:intercept",
+      "DrawerBehavior:touch",
+      "DrawerBehavior:position",
+      "DrawerBehavior:layout",
+      "DrawerBehavior:settle",
+  };
+
+  @Nullable private final DrawerTracer sink;
+
+  public SystraceDrawerTracer() {
+    this(null);
+  }
+
+  /** @param sink Tracer which receives every phase after its section is opened. */
+  public SystraceDrawerTracer(@Nullable DrawerTracer sink) {
+    this.sink = sink;
+  }
+
+  @Override public void beginPhase(View drawerView, @Phase int phase) {
+    TraceCompat.beginSection(SECTION_NAMES[phase]);
+    if (sink != null) {
+      sink.beginPhase(drawerView, phase);
+    }
+  }
+
+  @Override public void endPhase(View drawerView, @Phase int phase) {
+    if (sink != null) {
+      sink.endPhase(drawerView, phase);
+    }
+    TraceCompat.endSection();
+  }
+}
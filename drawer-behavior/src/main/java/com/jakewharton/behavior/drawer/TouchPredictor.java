@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.view.MotionEvent;
+
+/**
+ * Estimates where a pointer will be a few milliseconds from now. Every sample of each event,
+ * including the historical ones batched into it, goes into a small ring buffer, and the velocity
+ * is a least-squares fit over the most recent of them.
+ */
+final class TouchPredictor {
+  private static final int SAMPLES = 16;
+  /** Samples older than this, relative to the newest, do not contribute. */
+  private static final long HORIZON = 40; // ms
+
+  private final long[] times = new long[SAMPLES];
+  private final float[] xs = new float[SAMPLES];
+  private int newest = -1;
+  private int count;
+  private int pointerId = MotionEvent.INVALID_POINTER_ID;
+
+  void addMovement(MotionEvent ev) {
+    if (ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+      // A new gesture, even if its pointer reuses the last one's id.
+      pointerId = ev.getPointerId(0);
+      count = 0;
+    }
+    int index = ev.findPointerIndex(pointerId);
+    if (index < 0) {
+      return;
+    }
+    for (int h = 0, historySize = ev.getHistorySize(); h < historySize; h++) {
+      add(ev.getHistoricalEventTime(h), ev.getHistoricalX(index, h));
+    }
+    add(ev.getEventTime(), ev.getX(index));
+  }
+
+  /** Follow {@code pointerId} from now on, forgetting samples from any other pointer. */
+  void track(int pointerId) {
+    if (this.pointerId != pointerId) {
+      this.pointerId = pointerId;
+      count = 0;
+    }
+  }
+
+  private void add(long time, float x) {
+    if (count > 0 && time <= times[newest]) {
+      return; // Already seen as part of an earlier event.
+    }
+    newest = (newest + 1) % SAMPLES;
+    times[newest] = time;
+    xs[newest] = x;
+    if (count < SAMPLES) {
+      count++;
+    }
+  }
+
+  /** Horizontal velocity in pixels per millisecond, or 0 with too few recent samples. */
+  float velocity() {
+    if (count < 2) {
+      return 0;
+    }
+    long now = times[newest];
+    int n = 0;
+    float sumT = 0, sumX = 0, sumTT = 0, sumTX = 0;
+    for (int i = 0; i < count; i++) {
+      int index = (newest - i + SAMPLES) % SAMPLES;
+      float t = times[index] - now;
+      if (-t > HORIZON) {
+        break;
+      }
+      float x = xs[index];
+      sumT += t;
+      sumX += x;
+      sumTT += t * t;
+      sumTX += t * x;
+      n++;
+    }
+    float denominator = n * sumTT - sumT * sumT;
+    if (denominator == 0) {
+      return 0;
+    }
+    return (n * sumTX - sumT * sumX) / denominator;
+  }
+}
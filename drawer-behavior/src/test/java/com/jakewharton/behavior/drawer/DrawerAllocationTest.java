@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.ViewDragHelper;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Drives drags and settles through {@link DrawerBehavior} and holds the frames of a moving
+ * drawer to an allocation budget, since a GC pause mid-gesture is a dropped frame.
+ * Robolectric and the framework allocate on their own, so each frame is measured against the
+ * same frame of a bare {@link android.support.v4.widget.ViewDragHelper} drag or an empty
+ * animation callback. Failing here fails {@code check}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public final class DrawerAllocationTest {
+  /**
+   * Bytes a steady-state drag or settle frame may allocate on top of its baseline. State
+   * observers are not installed here: they get a new snapshot object on every frame by design.
+   */
+  private static final long FRAME_BUDGET_BYTES = 0;
+  private static final int WARM_UP_FRAMES = 100;
+  private static final int MEASURED_FRAMES = 400;
+  /** Frames to let a settle get going before measuring, and how many to measure. */
+  private static final int SETTLE_WARM_UP_FRAMES = 2;
+  private static final int SETTLE_MEASURED_FRAMES = 8;
+
+  @Before public void setUp() {
+    assumeTrue("Thread allocation counting is not supported", Allocations.isSupported());
+  }
+
+  @Test public void dragFrame() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    assertDragFrameWithinBudget(behavior);
+  }
+
+  @Test public void dragFrameWithTranslationPositioning() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    behavior.setTranslationPositioningEnabled(true);
+    assertDragFrameWithinBudget(behavior);
+  }
+
+  @Test public void dragFrameWithEffects() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    behavior.setPropertyScrimEnabled(true);
+    behavior.setDrawerShadowEnabled(true);
+    behavior.setContentEffect(0.3f, 1f);
+    behavior.setTouchPredictionMillis(16);
+    assertDragFrameWithinBudget(behavior);
+  }
+
+  @Test public void settleFrame() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    behavior.openDrawer(fixture.drawer);
+    fixture.runFrames(SETTLE_WARM_UP_FRAMES);
+    long before = Allocations.allocatedBytes();
+    fixture.runFrames(SETTLE_MEASURED_FRAMES);
+    long settle = Allocations.allocatedBytes() - before;
+    assertEquals("Settle ended before the measured frames did",
+        ViewDragHelper.STATE_SETTLING, fixture.delegate().dragState());
+
+    final DrawerFixture baseline = new DrawerFixture(new HelperOnlyBehavior());
+    Runnable frame = new Runnable() {
+      @Override public void run() {
+        ViewCompat.postOnAnimation(baseline.parent, this);
+      }
+    };
+    ViewCompat.postOnAnimation(baseline.parent, frame);
+    baseline.runFrames(SETTLE_WARM_UP_FRAMES);
+    before = Allocations.allocatedBytes();
+    baseline.runFrames(SETTLE_MEASURED_FRAMES);
+    long empty = Allocations.allocatedBytes() - before;
+    baseline.parent.removeCallbacks(frame);
+
+    assertWithinBudget("settle", settle, empty, SETTLE_MEASURED_FRAMES);
+  }
+
+  private static void assertDragFrameWithinBudget(DrawerBehavior behavior) {
+    long drag = measureDragFrames(new DrawerFixture(behavior));
+    long helperOnly = measureDragFrames(new DrawerFixture(new HelperOnlyBehavior()));
+    assertWithinBudget("drag", drag, helperOnly, MEASURED_FRAMES);
+  }
+
+  /** Returns the bytes allocated by the measured moves of a steady edge drag. */
+  private static long measureDragFrames(DrawerFixture fixture) {
+    MotionEvent[] events = fixture.edgeDrag(WARM_UP_FRAMES + MEASURED_FRAMES);
+    int measuredFrom = events.length - MEASURED_FRAMES;
+    fixture.dispatch(events, 0, measuredFrom);
+    View drawer = fixture.drawer;
+    assertTrue("Drawer was not dragged", drawer.getRight() + drawer.getTranslationX() > 0);
+
+    long before = Allocations.allocatedBytes();
+    fixture.dispatch(events, measuredFrom, events.length);
+    long allocated = Allocations.allocatedBytes() - before;
+
+    MotionEvent up = DrawerFixture.up(events[events.length - 1], 140);
+    fixture.parent.dispatchTouchEvent(up);
+    up.recycle();
+    DrawerFixture.recycle(events);
+    return allocated;
+  }
+
+  private static void assertWithinBudget(String frame, long bytes, long baselineBytes,
+      int frames) {
+    long extra = bytes - baselineBytes;
+    assertTrue(frames + " " + frame + " frames allocated " + extra + " bytes more than their "
+        + "baseline. The budget is " + FRAME_BUDGET_BYTES + " per frame.",
+        extra <= FRAME_BUDGET_BYTES * frames);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/** Drawers driven through {@link DrawerBehavior} end to end, one frame at a time. */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public final class DrawerBehaviorTest {
+  @Test public void flingOpensDrawer() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    MotionEvent[] events = fixture.edgeDrag(0);
+    fixture.dispatch(events, 0, events.length);
+    MotionEvent up = DrawerFixture.up(events[events.length - 1], 90);
+    fixture.parent.dispatchTouchEvent(up);
+    fixture.runFor(1000);
+
+    assertEquals(1f, fixture.delegate().slideOffset(), 0f);
+    assertTrue(behavior.isDrawerOpen(fixture.drawer));
+    up.recycle();
+    DrawerFixture.recycle(events);
+  }
+
+  @Test public void peekShowsDrawerEdgeUntilReleased() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    MotionEvent[] events = fixture.edgeDrag(0);
+    fixture.dispatch(events, 0, 1); // Only the down.
+    fixture.runFor(500);
+    assertTrue(fixture.delegate().slideOffset() > 0f);
+
+    MotionEvent up = DrawerFixture.up(events[0], DrawerFixture.EDGE_X);
+    fixture.parent.dispatchTouchEvent(up);
+    fixture.runFor(1000);
+    assertEquals(0f, fixture.delegate().slideOffset(), 0f);
+    up.recycle();
+    DrawerFixture.recycle(events);
+  }
+
+  @Test public void closeDrawerTakesDrawerFromFinger() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    MotionEvent[] events = fixture.edgeDrag(6);
+    fixture.dispatch(events, 0, 3); // Down, past the slop, and out to 100.
+    assertTrue(fixture.delegate().slideOffset() > 0f);
+
+    behavior.closeDrawer(fixture.drawer);
+    fixture.dispatch(events, 3, events.length); // The finger keeps dragging.
+    fixture.runFor(1000);
+    assertEquals(0f, fixture.delegate().slideOffset(), 0f);
+
+    MotionEvent up = DrawerFixture.up(events[events.length - 1], 140);
+    fixture.parent.dispatchTouchEvent(up);
+    fixture.runFor(1000);
+    assertEquals(0f, fixture.delegate().slideOffset(), 0f);
+    up.recycle();
+    DrawerFixture.recycle(events);
+  }
+
+  @Test public void closingLeavesClipSetByApp() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    behavior.openDrawer(fixture.drawer, false);
+    fixture.runFrames(2);
+    assertNotNull("Content was not clipped", fixture.content.getClipBounds());
+
+    Rect appClip = new Rect(0, 0, 10, 10);
+    fixture.content.setClipBounds(appClip);
+    behavior.closeDrawer(fixture.drawer, false);
+    fixture.runFrames(2);
+    assertEquals(appClip, fixture.content.getClipBounds());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.app.Activity;
+import android.support.design.widget.CoordinatorLayout;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+
+/**
+ * A left drawer over a content view in a {@link CoordinatorLayout} which is attached to a window.
+ * The main looper is paused, so time only passes, and frames only run, when a test says so.
+ */
+final class DrawerFixture {
+  static final int DRAWER_WIDTH = 240;
+  static final long FRAME_MILLIS = 16;
+  /** Inside the drag helper's 20dp edge region at Robolectric's default density of 1. */
+  static final float EDGE_X = 1;
+  private static final float TOUCH_Y = 100;
+
+  final CoordinatorLayout parent;
+  final View content;
+  final View drawer;
+  private long time;
+
+  DrawerFixture(CoordinatorLayout.Behavior<View> behavior) {
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    activity.setTheme(R.style.Theme_AppCompat_Light);
+    // Every frame callback waits for the next frame, so each call to runFrames runs one of them.
+    ShadowChoreographer.setPostCallbackDelay((int) FRAME_MILLIS);
+    ShadowChoreographer.setPostFrameCallbackDelay((int) FRAME_MILLIS);
+    ShadowLooper.pauseMainLooper();
+
+    parent = new CoordinatorLayout(activity);
+    content = new View(activity);
+    parent.addView(content, new CoordinatorLayout.LayoutParams(MATCH_PARENT, MATCH_PARENT));
+    drawer = new View(activity);
+    // Opaque, so the content is clipped to the strip it leaves uncovered.
+    drawer.setBackgroundColor(0xffffffff);
+    CoordinatorLayout.LayoutParams lp =
+        new CoordinatorLayout.LayoutParams(DRAWER_WIDTH, MATCH_PARENT);
+    lp.setBehavior(behavior);
+    parent.addView(drawer, lp);
+    activity.setContentView(parent);
+    runFrames(2);
+    time = now();
+  }
+
+  /** Let {@code count} frames pass, running whatever was due in them. */
+  void runFrames(int count) {
+    for (int i = 0; i < count; i++) {
+      ShadowLooper.idleMainLooper(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Let {@code millis} pass on the main looper's clock. */
+  void runFor(long millis) {
+    ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Let time pass until the main looper's clock reads {@code time}. */
+  void runUntil(long time) {
+    long millis = time - now();
+    if (millis > 0) {
+      runFor(millis);
+    }
+  }
+
+  /** The main looper's clock, which {@link android.os.SystemClock#uptimeMillis()} follows. */
+  long now() {
+    return ShadowLooper.getShadowMainLooper().getScheduler().getCurrentTime();
+  }
+
+  /**
+   * Events for a finger which touches the drawer's edge, pulls the drawer out past the touch slop,
+   * and then swings back and forth between 100 and 140 for {@code swings} moves, one per frame.
+   * The last event is the move before the finger lifts, which is left to the caller.
+   */
+  MotionEvent[] edgeDrag(int swings) {
+    MotionEvent[] events = new MotionEvent[swings + 2];
+    long downTime = time;
+    events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, EDGE_X, TOUCH_Y, 0);
+    events[1] = move(downTime, 1, 30);
+    for (int i = 0; i < swings; i++) {
+      events[i + 2] = move(downTime, i + 2, i % 2 == 0 ? 100 : 140);
+    }
+    return events;
+  }
+
+  /** A move {@code frame} frames into the gesture which started at {@code downTime}. */
+  static MotionEvent move(long downTime, int frame, float x) {
+    return MotionEvent.obtain(downTime, downTime + frame * FRAME_MILLIS, MotionEvent.ACTION_MOVE,
+        x, TOUCH_Y, 0);
+  }
+
+  /** The finger leaving the screen at {@code x} one frame after {@code last}. */
+  static MotionEvent up(MotionEvent last, float x) {
+    return MotionEvent.obtain(last.getDownTime(), last.getEventTime() + FRAME_MILLIS,
+        MotionEvent.ACTION_UP, x, TOUCH_Y, 0);
+  }
+
+  void dispatch(MotionEvent[] events, int from, int to) {
+    for (int i = from; i < to; i++) {
+      parent.dispatchTouchEvent(events[i]);
+    }
+  }
+
+  /** The drawer's delegate, once it has been laid out. */
+  BehaviorDelegate delegate() {
+    return (BehaviorDelegate) drawer.getTag(R.id.drawer_behavior_delegate);
+  }
+
+  static void recycle(MotionEvent[] events) {
+    for (MotionEvent event : events) {
+      event.recycle();
+    }
+  }
+}
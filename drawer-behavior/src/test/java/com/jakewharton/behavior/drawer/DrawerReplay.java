@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.support.v4.widget.ViewDragHelper;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.util.List;
+
+import static com.jakewharton.behavior.drawer.DrawerBehavior.DrawerTracer;
+
+/**
+ * Replays recorded events through a {@link DrawerFixture} one at a time with
+ * {@link DrawerGestureRecorder#replay}, in step with the fixture's clock. Time is moved on to each
+ * event's time before it is dispatched, so peeks and settles run between events as they did when
+ * the events were recorded, and after the last event until the drawer comes to rest.
+ */
+final class DrawerReplay implements DrawerTracer {
+  /** Longest a replay waits for the drawer to come to rest after the last event. */
+  private static final long MAX_SETTLE_MILLIS = 2000;
+
+  static DrawerReplay replay(DrawerFixture fixture, DrawerBehavior behavior,
+      List<MotionEvent> events) {
+    if (events.isEmpty()) {
+      throw new IllegalArgumentException("events are empty");
+    }
+    DrawerReplay replay = new DrawerReplay(events.size());
+    behavior.setDrawerTracer(replay);
+    // Recorded times are in the recording's clock. Keep their spacing on the fixture's.
+    long shift = fixture.now() - events.get(0).getEventTime();
+    for (int i = 0, size = events.size(); i < size; i++) {
+      fixture.runUntil(events.get(i).getEventTime() + shift);
+      replay.cpuTimes[i] =
+          DrawerGestureRecorder.replay(fixture.parent, events.subList(i, i + 1))[0];
+    }
+    long deadline = fixture.now() + MAX_SETTLE_MILLIS;
+    BehaviorDelegate delegate = fixture.delegate();
+    while (delegate.dragState() != ViewDragHelper.STATE_IDLE && fixture.now() < deadline) {
+      fixture.runFrames(1);
+    }
+    behavior.setDrawerTracer(null);
+    replay.slideOffset = delegate.slideOffset();
+    return replay;
+  }
+
+  /** The thread CPU time spent dispatching each event, as {@link DrawerGestureRecorder} reports. */
+  final long[] cpuTimes;
+  /** The settle frames which ran, each posted for the next frame by the one before. */
+  int settleFrames;
+  /** Where the drawer came to rest, from 0-1. */
+  float slideOffset;
+
+  private DrawerReplay(int eventCount) {
+    cpuTimes = new long[eventCount];
+  }
+
+  @Override public void beginPhase(View drawerView, int phase) {
+    if (phase == PHASE_SETTLE) {
+      settleFrames++;
+    }
+  }
+
+  @Override public void endPhase(View drawerView, int phase) {
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.os.Build;
+import android.view.Gravity;
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public final class DrawerReplayTest {
+  @Test public void recordingLeavesOutSyntheticCancels() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    DrawerGestureRecorder recorder = new DrawerGestureRecorder(100);
+    behavior.setGestureRecorder(recorder);
+
+    MotionEvent[] events = fixture.edgeDrag(4);
+    fixture.dispatch(events, 0, events.length);
+    MotionEvent up = DrawerFixture.up(events[events.length - 1], 140);
+    fixture.parent.dispatchTouchEvent(up);
+
+    // The parent cancels its touch behaviors around each gesture with events of its own.
+    List<MotionEvent> recorded = recorder.getEvents();
+    assertEquals(events.length + 1, recorded.size());
+    for (MotionEvent event : recorded) {
+      assertNotEquals(MotionEvent.ACTION_CANCEL, event.getActionMasked());
+    }
+    recorder.clear();
+    up.recycle();
+    DrawerFixture.recycle(events);
+  }
+
+  @Test public void recordingKeepsRealCancelInSameMillisecondAsDown() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    DrawerGestureRecorder recorder = new DrawerGestureRecorder(100);
+    behavior.setGestureRecorder(recorder);
+
+    MotionEvent[] events = fixture.edgeDrag(0);
+    MotionEvent down = events[0];
+    MotionEvent cancel = MotionEvent.obtain(down.getDownTime(), down.getEventTime(),
+        MotionEvent.ACTION_CANCEL, down.getX(), down.getY(), 0);
+    fixture.parent.dispatchTouchEvent(down);
+    fixture.parent.dispatchTouchEvent(cancel);
+
+    List<MotionEvent> recorded = recorder.getEvents();
+    assertEquals(2, recorded.size());
+    assertEquals(MotionEvent.ACTION_CANCEL, recorded.get(1).getActionMasked());
+    recorder.clear();
+    cancel.recycle();
+    DrawerFixture.recycle(events);
+  }
+
+  @Test public void replayReproducesRecordedFling() {
+    DrawerBehavior recordedBehavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture recordedFixture = new DrawerFixture(recordedBehavior);
+    DrawerGestureRecorder recorder = new DrawerGestureRecorder(100);
+    recordedBehavior.setGestureRecorder(recorder);
+    MotionEvent[] events = recordedFixture.edgeDrag(0);
+    recordedFixture.dispatch(events, 0, events.length);
+    MotionEvent up = DrawerFixture.up(events[events.length - 1], 90);
+    recordedFixture.parent.dispatchTouchEvent(up);
+    recordedFixture.runFor(1000);
+    assertEquals(1f, recordedFixture.delegate().slideOffset(), 0f);
+
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerReplay replay =
+        DrawerReplay.replay(new DrawerFixture(behavior), behavior, recorder.getEvents());
+    assertEquals(recorder.getEvents().size(), replay.cpuTimes.length);
+    assertTrue(replay.settleFrames > 0);
+    assertEquals(1f, replay.slideOffset, 0f);
+    recorder.clear();
+    up.recycle();
+    DrawerFixture.recycle(events);
+  }
+
+  @Test public void replayRunsPeekBetweenEvents() {
+    DrawerBehavior behavior = new DrawerBehavior(Gravity.LEFT);
+    DrawerFixture fixture = new DrawerFixture(behavior);
+    MotionEvent[] events = fixture.edgeDrag(0);
+    MotionEvent down = events[0];
+    // Held well past the peek delay before lifting.
+    MotionEvent up = MotionEvent.obtain(down.getDownTime(), down.getEventTime() + 400,
+        MotionEvent.ACTION_UP, DrawerFixture.EDGE_X, down.getY(), 0);
+
+    DrawerReplay replay = DrawerReplay.replay(fixture, behavior, Arrays.asList(down, up));
+    // The drawer peeked out while the finger was down, and went back once it lifted.
+    assertTrue(replay.settleFrames > 0);
+    assertEquals(0f, replay.slideOffset, 0f);
+    up.recycle();
+    DrawerFixture.recycle(events);
+  }
+}
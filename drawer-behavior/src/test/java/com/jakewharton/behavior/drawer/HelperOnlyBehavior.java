@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.design.widget.CoordinatorLayout;
+import android.support.v4.widget.ViewDragHelper;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * The least a behavior can do to let a left drawer be pulled out by its edge: run events through a
+ * {@link ViewDragHelper} and redraw where the drawer moved. What this allocates per frame is what
+ * the framework, the support library, and Robolectric allocate on their own.
+ */
+final class HelperOnlyBehavior extends CoordinatorLayout.Behavior<View> {
+  private final Rect dirty = new Rect();
+  private ViewDragHelper dragger;
+  private View child;
+
+  @Override
+  public boolean onLayoutChild(CoordinatorLayout parent, View child, int layoutDirection) {
+    helper(parent, child);
+    int width = child.getMeasuredWidth();
+    child.layout(-width, 0, 0, child.getMeasuredHeight());
+    return true;
+  }
+
+  @Override
+  public boolean onInterceptTouchEvent(CoordinatorLayout parent, View child, MotionEvent ev) {
+    return helper(parent, child).shouldInterceptTouchEvent(ev);
+  }
+
+  @Override public boolean onTouchEvent(CoordinatorLayout parent, View child, MotionEvent ev) {
+    helper(parent, child).processTouchEvent(ev);
+    return true;
+  }
+
+  private ViewDragHelper helper(final CoordinatorLayout parent, View child) {
+    if (dragger == null) {
+      this.child = child;
+      dragger = ViewDragHelper.create(parent, new ViewDragHelper.Callback() {
+        @Override public boolean tryCaptureView(@NonNull View view, int pointerId) {
+          return view == HelperOnlyBehavior.this.child;
+        }
+
+        @Override public void onEdgeDragStarted(int edgeFlags, int pointerId) {
+          dragger.captureChildView(HelperOnlyBehavior.this.child, pointerId);
+        }
+
+        @Override public int getViewHorizontalDragRange(@NonNull View view) {
+          return view.getWidth();
+        }
+
+        @Override public int clampViewPositionHorizontal(@NonNull View view, int left, int dx) {
+          return Math.max(-view.getWidth(), Math.min(left, 0));
+        }
+
+        @Override
+        public void onViewPositionChanged(@NonNull View view, int left, int top, int dx, int dy) {
+          dirty.set(Math.min(left, left - dx), top, Math.max(left, left - dx) + view.getWidth(),
+              top + view.getHeight());
+          parent.invalidate(dirty);
+        }
+      });
+      dragger.setEdgeTrackingEnabled(ViewDragHelper.EDGE_LEFT);
+    }
+    return dragger;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Jake Wharton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jakewharton.behavior.drawer;
+
+import android.os.Build;
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public final class TouchPredictorTest {
+  private final TouchPredictor predictor = new TouchPredictor();
+
+  @Test public void velocityOfSteadyMove() {
+    add(0, MotionEvent.ACTION_DOWN, 0, 0);
+    add(0, MotionEvent.ACTION_MOVE, 10, 20);
+    add(0, MotionEvent.ACTION_MOVE, 20, 40);
+    assertEquals(2f, predictor.velocity(), 0.001f);
+  }
+
+  @Test public void downForgetsPreviousGesture() {
+    add(0, MotionEvent.ACTION_DOWN, 0, 0);
+    add(0, MotionEvent.ACTION_MOVE, 10, 20);
+    add(0, MotionEvent.ACTION_UP, 20, 40);
+    // The next gesture's pointer gets the same id.
+    add(30, MotionEvent.ACTION_DOWN, 30, 200);
+    assertEquals(0f, predictor.velocity(), 0f);
+  }
+
+  private void add(long downTime, int action, long eventTime, float x) {
+    MotionEvent ev = MotionEvent.obtain(downTime, eventTime, action, x, 0, 0);
+    predictor.addMovement(ev);
+    ev.recycle();
+  }
+}
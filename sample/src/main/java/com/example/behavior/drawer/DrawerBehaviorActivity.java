@@ -15,7 +15,7 @@ public final class DrawerBehaviorActivity extends AppCompatActivity {
     setContentView(R.layout.drawer_behavior);
     View view = findViewById(R.id.view);
     DrawerBehavior behavior = DrawerBehavior.from(view);
-    behavior.setDrawerListener(new DrawerBehavior.DrawerListener() {
+    behavior.addDrawerListener(new DrawerBehavior.DrawerListener() {
       @Override
       public void onDrawerSlide(View drawerView, float slideOffset) {
         Log.d(TAG, "onDrawerSlide: drawerView: "